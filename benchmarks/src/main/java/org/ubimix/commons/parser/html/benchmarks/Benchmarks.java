@@ -0,0 +1,31 @@
+package org.ubimix.commons.parser.html.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs benchmarks with the GC profiler, so results contain allocation rates
+ * ("gc.alloc.rate.norm" is the number of bytes allocated per operation).
+ * Accepts the same arguments as the standard JMH launcher, for example
+ * "HtmlParserBenchmark -p document=Wikipedia-France.html".
+ * 
+ * @author kotelnikov
+ */
+public class Benchmarks {
+
+    public static void main(String[] args)
+        throws CommandLineOptionException,
+        RunnerException {
+        Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,33 @@
+package org.ubimix.commons.parser.html.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts megabytes (10^6 bytes) processed by a benchmark. JMH reports this
+ * counter as a rate in the output time unit of the benchmark, so for
+ * benchmarks measured in seconds the "megabytes" line of results gives the
+ * throughput in MB/s.
+ * 
+ * @author kotelnikov
+ */
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+@State(Scope.Thread)
+public class ByteCounters {
+
+    /**
+     * The number of bytes in one megabyte
+     */
+    static final double MEGABYTE = 1000000;
+
+    public double megabytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        megabytes = 0;
+    }
+
+}
@@ -0,0 +1,49 @@
+package org.ubimix.commons.parser.html.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Access to documents used by benchmarks. Documents are packaged with the
+ * benchmarks from the test resources of the parser.
+ * 
+ * @author kotelnikov
+ */
+final class Documents {
+
+    public static final String FRANCE = "Wikipedia-France.html";
+
+    public static final String UNITED_STATES = "Wikipedia-United_States.html";
+
+    public static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String PATH = "/org/ubimix/commons/parser/html/";
+
+    public static byte[] readBytes(String name) throws IOException {
+        InputStream input = Documents.class.getResourceAsStream(PATH + name);
+        if (input == null) {
+            throw new IOException("Document '" + name + "' was not found.");
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[1024 * 10];
+            int len;
+            while ((len = input.read(buf)) > 0) {
+                out.write(buf, 0, len);
+            }
+            return out.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
+
+    public static String readString(String name) throws IOException {
+        return new String(readBytes(name), UTF8);
+    }
+
+    private Documents() {
+    }
+
+}
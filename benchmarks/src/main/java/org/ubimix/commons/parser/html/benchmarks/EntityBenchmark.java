@@ -0,0 +1,99 @@
+package org.ubimix.commons.parser.html.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ubimix.commons.parser.CharStream;
+import org.ubimix.commons.parser.ICharStream;
+import org.ubimix.commons.parser.StreamToken;
+import org.ubimix.commons.parser.html.HtmlEntityTokenizer;
+import org.ubimix.commons.parser.html.HtmlParser;
+import org.ubimix.commons.parser.html.XHTMLEntities;
+
+/**
+ * Recognition of named and numeric references: the entity tokenizer alone
+ * and the parser on an entity-heavy document.
+ * 
+ * @author kotelnikov
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EntityBenchmark {
+
+    private static final String FRAGMENT = "caf&eacute; &amp; cr&egrave;me "
+        + "&#233;&#xE8;&#x3c;&#62; &NotEqualTilde;&notin &lt;p&gt; "
+        + "&copy;&nbsp;2012&hellip; ";
+
+    /**
+     * The size of the generated document in characters
+     */
+    private static final int SIZE = 64 * 1024;
+
+    @Param({ "false", "true" })
+    public boolean mergeEntities;
+
+    private HtmlParser fParser;
+
+    /**
+     * The size of the document in UTF-8 bytes
+     */
+    private int fSize;
+
+    private String fText;
+
+    private HtmlEntityTokenizer fTokenizer;
+
+    @Benchmark
+    public void parse(ByteCounters counters, Blackhole blackhole) {
+        fParser.parse(
+            new CharStream(fText),
+            new HtmlParserBenchmark.BlackholeListener(blackhole));
+        counters.megabytes += fSize / ByteCounters.MEGABYTE;
+    }
+
+    @Setup
+    public void setup() {
+        StringBuilder buf = new StringBuilder("<p>");
+        while (buf.length() < SIZE) {
+            buf.append(FRAGMENT);
+        }
+        buf.append("</p>");
+        fText = buf.toString();
+        fSize = fText.getBytes(Documents.UTF8).length;
+        XHTMLEntities e = HtmlParser.XHTML_ENTITIES;
+        fTokenizer = HtmlEntityTokenizer.newHtml5Tokenizer(HtmlEntityTokenizer
+            .getEntities(e.XML, e.CHARS, e.SYMBOLS, e.SPECIALS));
+        fParser = new HtmlParser();
+        fParser.setMergeEntities(mergeEntities);
+    }
+
+    @Benchmark
+    public void tokenize(ByteCounters counters, Blackhole blackhole) {
+        ICharStream stream = new CharStream(fText);
+        while (!stream.isTerminated()) {
+            StreamToken token = fTokenizer.read(stream);
+            if (token != null) {
+                blackhole.consume(token);
+            } else {
+                stream.incPos();
+            }
+        }
+        counters.megabytes += fSize / ByteCounters.MEGABYTE;
+    }
+
+}
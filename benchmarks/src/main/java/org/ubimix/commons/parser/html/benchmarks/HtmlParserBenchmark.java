@@ -0,0 +1,112 @@
+package org.ubimix.commons.parser.html.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ubimix.commons.parser.CharStream;
+import org.ubimix.commons.parser.html.HtmlParser;
+import org.ubimix.commons.parser.xml.Entity;
+import org.ubimix.commons.parser.xml.XmlListener;
+
+/**
+ * End-to-end parsing of real documents: tokenization, tag balancing and
+ * listener notifications. Documents are parsed from strings (no decoding) and
+ * from UTF-8 bytes (decoding on the fly).
+ * 
+ * @author kotelnikov
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HtmlParserBenchmark {
+
+    /**
+     * This listener passes all notifications to a black hole.
+     */
+    static class BlackholeListener extends XmlListener {
+
+        private final Blackhole fBlackhole;
+
+        public BlackholeListener(Blackhole blackhole) {
+            fBlackhole = blackhole;
+        }
+
+        @Override
+        public void beginElement(
+            String tagName,
+            Map<String, String> attributes,
+            Map<String, String> namespaces) {
+            fBlackhole.consume(tagName);
+            fBlackhole.consume(attributes);
+        }
+
+        @Override
+        public void endElement(
+            String tagName,
+            Map<String, String> attributes,
+            Map<String, String> namespaces) {
+            fBlackhole.consume(tagName);
+        }
+
+        @Override
+        public void onEntity(Entity entity) {
+            fBlackhole.consume(entity);
+        }
+
+        @Override
+        public void onText(String str) {
+            fBlackhole.consume(str);
+        }
+
+    }
+
+    @Param({ Documents.FRANCE, Documents.UNITED_STATES })
+    public String document;
+
+    private byte[] fBytes;
+
+    private HtmlParser fParser;
+
+    private String fText;
+
+    @Benchmark
+    public void parseBytes(ByteCounters counters, Blackhole blackhole)
+        throws IOException {
+        fParser.parse(
+            new ByteArrayInputStream(fBytes),
+            Documents.UTF8,
+            new BlackholeListener(blackhole));
+        counters.megabytes += fBytes.length / ByteCounters.MEGABYTE;
+    }
+
+    @Benchmark
+    public void parseString(ByteCounters counters, Blackhole blackhole) {
+        fParser.parse(new CharStream(fText), new BlackholeListener(blackhole));
+        counters.megabytes += fBytes.length / ByteCounters.MEGABYTE;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        fBytes = Documents.readBytes(document);
+        fText = new String(fBytes, Documents.UTF8);
+        fParser = new HtmlParser();
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.ubimix.commons.parser.html.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ubimix.commons.parser.CharStream;
+import org.ubimix.commons.parser.balancer.TagBalancer;
+import org.ubimix.commons.parser.html.HtmlParser;
+import org.ubimix.commons.parser.html.HtmlTagDescriptorBuilder;
+import org.ubimix.commons.parser.html.benchmarks.PathologicalDocuments.Shape;
+
+/**
+ * Parsing of adversarial documents (see {@link PathologicalDocuments}) of
+ * growing sizes. The time per operation should grow linearly with the size;
+ * compare results for different values of the "count" parameter to detect
+ * quadratic behavior:
+ * 
+ * <pre>
+ * java -jar target/benchmarks.jar PathologicalBenchmark -p shape=STRAY_END_TAGS
+ * </pre>
+ * 
+ * @author kotelnikov
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PathologicalBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int count;
+
+    @Param
+    public Shape shape;
+
+    private TagBalancer fBalancer;
+
+    private HtmlParser fParser;
+
+    private TagSequence fTags;
+
+    /**
+     * The size of the document in UTF-8 bytes
+     */
+    private int fSize;
+
+    private String fText;
+
+    @Benchmark
+    public void balance() {
+        fTags.replay(fBalancer);
+    }
+
+    @Benchmark
+    public void parse(ByteCounters counters, Blackhole blackhole) {
+        fParser.parse(
+            new CharStream(fText),
+            new HtmlParserBenchmark.BlackholeListener(blackhole));
+        counters.megabytes += fSize / ByteCounters.MEGABYTE;
+    }
+
+    @Setup
+    public void setup() {
+        fText = shape.generate(count);
+        fSize = fText.getBytes(Documents.UTF8).length;
+        fParser = new HtmlParser();
+        fTags = new TagSequence(fText);
+        fBalancer = new TagBalancer(
+            HtmlTagDescriptorBuilder.getInstance(),
+            new TagBalancer.IListener() {
+                @Override
+                public void begin(String tag) {
+                }
+
+                @Override
+                public void end(String tag) {
+                }
+            });
+    }
+
+}
@@ -0,0 +1,178 @@
+package org.ubimix.commons.parser.html.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Generator of adversarial HTML documents. Each shape stresses one part of
+ * the parser: error recovery of the tag balancer, the text buffer, attribute
+ * maps or the entity tokenizer. The size of documents is defined by the
+ * number of repeated units, so the scaling of the parser can be measured by
+ * generating documents of different sizes.
+ * <p>
+ * The {@link #main(String[])} method writes all documents to files, so they
+ * can be used by other tools: <code>PathologicalDocuments dir 100000</code>.
+ * </p>
+ * 
+ * @author kotelnikov
+ */
+public class PathologicalDocuments {
+
+    public enum Shape {
+
+        /** Attributes of one element: "&lt;div a0='0' a1='1' ..." */
+        ATTRIBUTES {
+            @Override
+            protected void append(StringBuilder buf, int i) {
+                buf.append(" a").append(i).append("='").append(i).append("'");
+            }
+
+            @Override
+            public String generate(int count) {
+                StringBuilder buf = new StringBuilder("<div");
+                for (int i = 0; i < count; i++) {
+                    append(buf, i);
+                }
+                return buf.append(">text</div>").toString();
+            }
+        },
+
+        /** Deeply nested elements which are never closed: "&lt;div&gt;..." */
+        DEEP_NESTING {
+            @Override
+            protected void append(StringBuilder buf, int i) {
+                buf.append("<div>");
+            }
+        },
+
+        /**
+         * Closing tags without opening ones in deeply nested elements:
+         * "&lt;div&gt;...&lt;/span&gt;..."
+         */
+        DEEP_STRAY_END_TAGS {
+            @Override
+            public String generate(int count) {
+                return DEEP_NESTING.generate(count)
+                    + STRAY_END_TAGS.generate(count);
+            }
+        },
+
+        /** Named and numeric references: "&amp;amp;&amp;#233;..." */
+        ENTITIES {
+            @Override
+            protected void append(StringBuilder buf, int i) {
+                buf.append("&amp;&eacute;&#233;&#xE9;&NotEqualTilde;&notin");
+            }
+        },
+
+        /** Inline elements closed in the wrong order */
+        MISNESTED_INLINE {
+            @Override
+            protected void append(StringBuilder buf, int i) {
+                buf.append("<b><i>x</b></i>");
+            }
+        },
+
+        /** Chains of inline elements closed only at the end */
+        MISNESTED_CHAIN {
+            @Override
+            public String generate(int count) {
+                StringBuilder buf = new StringBuilder();
+                for (int i = 0; i < count; i++) {
+                    buf.append("<b><i>x");
+                }
+                for (int i = 0; i < count; i++) {
+                    buf.append("</b>");
+                }
+                return buf.toString();
+            }
+        },
+
+        /** Closing tags without opening ones: "&lt;/span&gt;..." */
+        STRAY_END_TAGS {
+            @Override
+            protected void append(StringBuilder buf, int i) {
+                buf.append("</span>");
+            }
+
+            @Override
+            public String generate(int count) {
+                return "<p>" + super.generate(count) + "</p>";
+            }
+        },
+
+        /** Table cells without rows: "&lt;table&gt;&lt;td&gt;x..." */
+        TABLE_WITHOUT_ROWS {
+            @Override
+            protected void append(StringBuilder buf, int i) {
+                buf.append("<td>x");
+            }
+
+            @Override
+            public String generate(int count) {
+                return "<table>" + super.generate(count) + "</table>";
+            }
+        },
+
+        /** One text run without spaces; 100 characters per unit */
+        TEXT_RUN {
+            @Override
+            protected void append(StringBuilder buf, int i) {
+                for (int j = 0; j < 10; j++) {
+                    buf.append("abcdefghi.");
+                }
+            }
+        },
+
+        /** Opening tags which are never closed: "&lt;div&gt;x..." */
+        UNCLOSED_ELEMENTS {
+            @Override
+            protected void append(StringBuilder buf, int i) {
+                buf.append("<div>x");
+            }
+        };
+
+        /**
+         * Appends one unit of the document.
+         * 
+         * @param buf the buffer to fill
+         * @param i the index of the unit
+         */
+        protected void append(StringBuilder buf, int i) {
+        }
+
+        /**
+         * Generates a document with the specified number of units.
+         * 
+         * @param count the number of units
+         * @return a generated document
+         */
+        public String generate(int count) {
+            StringBuilder buf = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                append(buf, i);
+            }
+            return buf.toString();
+        }
+
+    }
+
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : "./tmp");
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        dir.mkdirs();
+        for (Shape shape : Shape.values()) {
+            String str = shape.generate(count);
+            File file = new File(dir, shape.name() + "-" + count + ".html");
+            OutputStream out = new FileOutputStream(file);
+            try {
+                out.write(str.getBytes(Documents.UTF8));
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package org.ubimix.commons.parser.html.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ubimix.commons.parser.balancer.TagBalancer;
+import org.ubimix.commons.parser.html.HtmlTagDescriptorBuilder;
+
+/**
+ * Balancing of tag sequences extracted from real documents without
+ * tokenization (see {@link TagSequence}); each benchmark operation replays
+ * all begin/end events of the document.
+ * 
+ * @author kotelnikov
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TagBalancerBenchmark {
+
+    @Param({ Documents.FRANCE, Documents.UNITED_STATES })
+    public String document;
+
+    private TagBalancer fBalancer;
+
+    private int fCount;
+
+    private TagSequence fTags;
+
+    @Benchmark
+    public int balance() {
+        fCount = 0;
+        fTags.replay(fBalancer);
+        return fCount;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        fTags = new TagSequence(Documents.readString(document));
+        fBalancer = new TagBalancer(
+            HtmlTagDescriptorBuilder.getInstance(),
+            new TagBalancer.IListener() {
+                @Override
+                public void begin(String tag) {
+                    fCount++;
+                }
+
+                @Override
+                public void end(String tag) {
+                    fCount++;
+                }
+            });
+    }
+
+}
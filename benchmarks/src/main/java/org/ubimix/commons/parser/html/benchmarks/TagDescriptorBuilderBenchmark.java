@@ -0,0 +1,33 @@
+package org.ubimix.commons.parser.html.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ubimix.commons.parser.balancer.TagDescriptor;
+import org.ubimix.commons.parser.html.HtmlTagDescriptorBuilder;
+
+/**
+ * Compilation of the HTML tag descriptor. This cost is paid once per
+ * descriptor, but it defines the start-up time of parsers.
+ * 
+ * @author kotelnikov
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TagDescriptorBuilderBenchmark {
+
+    @Benchmark
+    public TagDescriptor build() {
+        return new HtmlTagDescriptorBuilder().build();
+    }
+
+}
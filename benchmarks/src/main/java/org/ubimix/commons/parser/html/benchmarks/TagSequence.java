@@ -0,0 +1,71 @@
+package org.ubimix.commons.parser.html.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.ubimix.commons.parser.balancer.TagBalancer;
+import org.ubimix.commons.parser.html.HtmlTagTable;
+
+/**
+ * A sequence of opening and closing tags extracted from a document by a
+ * regular expression. It is used to measure the tag balancer without
+ * tokenization.
+ * 
+ * @author kotelnikov
+ */
+final class TagSequence {
+
+    private static final Pattern TAG = Pattern
+        .compile("<(/?)([a-zA-Z][a-zA-Z0-9]*)");
+
+    /**
+     * Flags of opening tags
+     */
+    private final boolean[] fOpen;
+
+    private final String[] fTags;
+
+    public TagSequence(String text) {
+        List<String> tags = new ArrayList<String>();
+        List<Boolean> open = new ArrayList<Boolean>();
+        Matcher matcher = TAG.matcher(text);
+        while (matcher.find()) {
+            open.add(matcher.group(1).length() == 0);
+            tags.add(HtmlTagTable.toTagName(matcher.group(2)));
+        }
+        fTags = tags.toArray(new String[tags.size()]);
+        fOpen = new boolean[fTags.length];
+        for (int i = 0; i < fOpen.length; i++) {
+            fOpen[i] = open.get(i);
+        }
+    }
+
+    /**
+     * Sends all tags of this sequence to the given balancer and finishes
+     * balancing.
+     * 
+     * @param balancer the balancer to use
+     */
+    public void replay(TagBalancer balancer) {
+        for (int i = 0; i < fTags.length; i++) {
+            if (fOpen[i]) {
+                balancer.begin(fTags[i]);
+            } else {
+                balancer.end(fTags[i]);
+            }
+        }
+        balancer.finish();
+    }
+
+    /**
+     * Returns the number of tags in this sequence.
+     * 
+     * @return the number of tags in this sequence
+     */
+    public int size() {
+        return fTags.length;
+    }
+
+}
@@ -0,0 +1,64 @@
+package org.ubimix.commons.parser.balancer;
+
+/**
+ * An {@link ITagDescriptor} giving dense integer identifiers to declared
+ * tags. The {@link TagBalancer} uses these identifiers to keep its stack and
+ * counters in plain arrays; descriptors which do not implement this
+ * interface are adapted by the balancer itself.
+ * 
+ * @author kotelnikov
+ */
+public interface IIndexedTagDescriptor extends ITagDescriptor {
+
+    /**
+     * This identifier is returned by the {@link #getTagId(String)} and
+     * {@link #getParentTagId(int)} methods for tags which were not declared.
+     */
+    int UNDECLARED = -1;
+
+    /**
+     * Checks if a parent tag can contain a specified child tag.
+     * 
+     * @param parentId the identifier of the parent tag
+     * @param tagId the identifier of the child tag
+     * @return <code>true</code> if the parent tag can contain the specified
+     *         child tag
+     */
+    boolean accepts(int parentId, int tagId);
+
+    /**
+     * Returns the identifier of the parent for the tag with the specified
+     * identifier
+     * 
+     * @param tagId the identifier of the tag
+     * @return the identifier of the parent tag or {@link #UNDECLARED} if the
+     *         tag has no parent
+     */
+    int getParentTagId(int tagId);
+
+    /**
+     * Returns the number of declared tags. All tag identifiers are in the
+     * range [0..getTagCount()).
+     * 
+     * @return the number of declared tags
+     */
+    int getTagCount();
+
+    /**
+     * Returns a dense integer identifier of the specified tag.
+     * 
+     * @param tag the tag name
+     * @return the identifier of the tag or {@link #UNDECLARED} if no types
+     *         were declared for this tag
+     */
+    int getTagId(String tag);
+
+    /**
+     * Returns the name of the tag with the specified identifier.
+     * 
+     * @param tagId the identifier of the tag
+     * @return the name of the tag
+     */
+    String getTagName(int tagId);
+
+}
@@ -1,6 +1,30 @@
 package org.ubimix.commons.parser.balancer;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
+ * This class restores the structure of a stream of opening and closing tags
+ * using rules defined by an {@link ITagDescriptor}. Open tags are kept in a
+ * stack based on parallel arrays (tag names and tag identifiers) which grows
+ * on demand and is re-used between documents, so balancing does not create
+ * any objects.
+ * <p>
+ * The stack is indexed to keep the recovery of broken documents linear.
+ * The number of opened tags is counted for each tag name, so closing tags
+ * without corresponding opened tags are rejected without scanning the
+ * stack. Each stack position keeps the position of the nearest declared tag
+ * and each tag identifier keeps the part of the stack which is known to
+ * not accept it, so opening tags never re-check contexts which were already
+ * checked for the same tag.
+ * </p>
+ * <p>
+ * Tag identifiers are provided by {@link IIndexedTagDescriptor}s (like the
+ * compiled {@link TagDescriptor}). Other descriptors are adapted by the
+ * balancer: their tags get identifiers when they are used the first time.
+ * </p>
+ * 
  * @author kotelnikov
  */
 public class TagBalancer {
@@ -12,133 +36,425 @@ public class TagBalancer {
         void end(String tag);
     }
 
-    protected static class TagContext {
+    private static final int INITIAL_CAPACITY = 32;
 
-        private ITagDescriptor fDescriptor;
+    /**
+     * This value of the {@link #fAcceptedLeafId} field means that no leaf tags
+     * were accepted by the current context.
+     */
+    private static final int NO_LEAF = Integer.MIN_VALUE;
 
-        private TagBalancer.TagContext fParent;
+    /**
+     * The identifier of the last leaf tag directly accepted by the top-most
+     * context (see {@link #ensureLeafContext(String)}). This cached value is
+     * reset each time when the stack is modified.
+     */
+    private int fAcceptedLeafId = NO_LEAF;
 
-        private String fTag;
+    /**
+     * Positions of the nearest declared tags for each position in the stack
+     * (-1 if all tags up to the position are unknown); unknown tags delegate
+     * acceptance of children to these tags.
+     */
+    private int[] fDeclaredPositions = new int[INITIAL_CAPACITY];
 
-        public TagContext(
-            ITagDescriptor descriptor,
-            TagBalancer.TagContext parent,
-            String tag) {
-            fParent = parent;
-            fTag = tag;
-            fDescriptor = descriptor;
-        }
+    private IIndexedTagDescriptor fDescriptor;
+
+    private IListener fListener;
+
+    /**
+     * The maximal number of opened tags (see {@link #setMaxDepth(int)}).
+     */
+    private int fMaxDepth = Integer.MAX_VALUE;
+
+    /**
+     * The number of opened tags for each declared tag identifier.
+     */
+    private int[] fOpenCounts;
+
+    /**
+     * The number of opened tags for each unknown tag name. Names are removed
+     * from this map when their last tag is closed.
+     */
+    private final Map<String, int[]> fOpenUndeclaredCounts = new HashMap<String, int[]>();
+
+    /**
+     * Unique stamps of pushes for each position in the stack. A stamp
+     * identifies the content of the stack up to its position: the content
+     * can be changed only by popping tags, so a position keeps the same
+     * stamp while all tags below it remain opened.
+     */
+    private long[] fPushStamps = new long[INITIAL_CAPACITY];
+
+    /**
+     * The stamp of the last push.
+     */
+    private long fPushStamp;
+
+    /**
+     * For each declared tag identifier: the size of the stack part which is
+     * known to not accept the tag. This value is valid only while the stamp
+     * of the top-most position of this part is equal to the corresponding
+     * value in the {@link #fRejectedStamps} array.
+     */
+    private int[] fRejectedSizes;
+
+    /**
+     * Stamps of the stack parts defined by the {@link #fRejectedSizes} array.
+     */
+    private long[] fRejectedStamps;
+
+    /**
+     * The number of currently opened tags.
+     */
+    private int fSize;
+
+    /**
+     * Identifiers of opened tags; {@link IIndexedTagDescriptor#UNDECLARED} is
+     * used for unknown tags.
+     */
+    private int[] fTagIds = new int[INITIAL_CAPACITY];
+
+    /**
+     * Names of opened tags.
+     */
+    private String[] fTags = new String[INITIAL_CAPACITY];
+
+    public TagBalancer(ITagDescriptor descriptor, IListener listener) {
+        fListener = listener;
+        fDescriptor = descriptor instanceof IIndexedTagDescriptor
+            ? (IIndexedTagDescriptor) descriptor
+            : new TagDescriptorAdapter(descriptor);
+        int count = fDescriptor.getTagCount();
+        fOpenCounts = new int[count];
+        fRejectedSizes = new int[count];
+        fRejectedStamps = new long[count];
+    }
 
-        private boolean acceptClosingTag(String tag) {
-            return fTag.equals(tag);
+    /**
+     * Returns <code>true</code> if the context at the specified position in
+     * the stack accepts the given tag.
+     */
+    private boolean acceptOpeningTag(int pos, int tagId) {
+        if (tagId < 0) {
+            // Accept all unknown tags
+            return true;
         }
+        // Unknown tags delegate to the nearest declared parent
+        pos = fDeclaredPositions[pos];
+        return pos < 0 || fDescriptor.accepts(fTagIds[pos], tagId);
+    }
 
-        private boolean acceptOpeningTag(String tag) {
-            if (!fDescriptor.isDeclared(tag)) {
-                // Accept all unknown tags
-                return true;
+    public void begin(String tag) {
+        begin(tag, getTagId(tag));
+    }
+
+    /**
+     * Opens the specified tag and its implicit parents and returns
+     * <code>true</code> if the tag was opened; <code>false</code> is returned
+     * if the tag was dropped because it does not fit in the maximal depth
+     * (see {@link #setMaxDepth(int)}).
+     */
+    private boolean begin(String tag, int tagId) {
+        int target = getTargetOpeningContext(tagId);
+        if (target < 0) {
+            int parentId = getParentTagId(tagId);
+            if (parentId >= 0) {
+                if (!begin(fDescriptor.getTagName(parentId), parentId)) {
+                    return false;
+                }
+                target = getTargetOpeningContext(tagId);
             }
-            boolean result = false;
-            if (!fDescriptor.isDeclared(fTag)) {
-                result = fParent == null || fParent.acceptOpeningTag(tag);
-            } else {
-                result = fDescriptor.accepts(fTag, tag);
+        }
+        if (target >= fMaxDepth - 1) {
+            target = getLimitedOpeningContext(tagId);
+            if (target < 0) {
+                return false;
             }
-            return result;
         }
+        popTo(target + 1);
+        push(tag, tagId);
+        return true;
+    }
 
-        public TagBalancer.TagContext getParent() {
-            return fParent;
+    /**
+     * Decrements the number of opened tags with the specified name.
+     */
+    private void decOpenCount(String tag, int tagId) {
+        if (tagId >= 0) {
+            fOpenCounts[tagId]--;
+        } else {
+            int[] count = fOpenUndeclaredCounts.get(tag);
+            if (--count[0] == 0) {
+                fOpenUndeclaredCounts.remove(tag);
+            }
         }
+    }
 
-        public String getTag() {
-            return fTag;
+    public void end(String tag) {
+        int tagId = getTagId(tag);
+        int count = getOpenCount(tag, tagId);
+        if (count == 0 || (count == 1 && isRootTag(tag, tagId))) {
+            // Nothing to close
+            return;
+        }
+        int pos = getTargetClosingContext(tag, tagId);
+        // The root tag is never closed explicitly; it is closed by the
+        // finish() method.
+        if (pos > 0) {
+            popTo(pos);
         }
+    }
 
-        public TagBalancer.TagContext getTargetClosingContext(String tag) {
-            TagBalancer.TagContext result = null;
-            TagBalancer.TagContext context = this;
-            while (context != null && result == null) {
-                if (context.acceptClosingTag(tag)) {
-                    result = context.fParent;
-                    break;
+    /**
+     * Prepares the context for a leaf tag (like a text or a space token) which
+     * is opened and immediately closed. This method has the same effect on
+     * the stack as the {@link #begin(String)}/{@link #end(String)} pair - it
+     * closes tags which can not contain the leaf and opens its implicit
+     * parents - but the leaf tag itself is not pushed in the stack and the
+     * listener is not notified about it. The only exception is a leaf opened
+     * in an empty stack: it becomes the root tag exactly as with the
+     * {@link #begin(String)} method.
+     * 
+     * @param tag the leaf tag
+     */
+    public void ensureLeafContext(String tag) {
+        int tagId = getTagId(tag);
+        if (tagId == fAcceptedLeafId) {
+            return;
+        }
+        int target = getTargetOpeningContext(tagId);
+        if (target < 0) {
+            int parentId = getParentTagId(tagId);
+            if (parentId >= 0) {
+                if (!begin(fDescriptor.getTagName(parentId), parentId)) {
+                    // The leaf stays in the current context
+                    return;
                 }
-                context = context.getParent();
+                target = getTargetOpeningContext(tagId);
             }
-            return result;
         }
+        popTo(target + 1);
+        if (fSize == 0) {
+            // Root tags are never closed by the end(String) method.
+            push(tag, tagId);
+        } else {
+            fAcceptedLeafId = tagId;
+        }
+    }
 
-        public TagBalancer.TagContext getTargetOpeningContext(String tag) {
-            TagBalancer.TagContext result = null;
-            TagBalancer.TagContext context = this;
-            while (context != null && result == null) {
-                if (context.acceptOpeningTag(tag)) {
-                    result = context;
-                    break;
-                }
-                context = context.getParent();
+    public void finish() {
+        popTo(0);
+    }
+
+    /**
+     * Returns the number of currently opened tags.
+     * 
+     * @return the number of currently opened tags
+     */
+    public int getDepth() {
+        return fSize;
+    }
+
+    /**
+     * Returns the maximal number of opened tags.
+     * 
+     * @return the maximal number of opened tags
+     */
+    public int getMaxDepth() {
+        return fMaxDepth;
+    }
+
+    /**
+     * Returns the position of the top-most opened tag accepting the specified
+     * tag as a child without exceeding the maximal depth or -1 if there is no
+     * such a tag. The number of checked positions is bounded by the maximal
+     * depth.
+     */
+    private int getLimitedOpeningContext(int tagId) {
+        for (int i = Math.min(fSize, fMaxDepth - 1) - 1; i >= 0; i--) {
+            if (acceptOpeningTag(i, tagId)) {
+                return i;
             }
-            return result;
         }
+        return -1;
+    }
 
+    /**
+     * Returns the number of opened tags with the specified name.
+     */
+    private int getOpenCount(String tag, int tagId) {
+        if (tagId >= 0) {
+            return fOpenCounts[tagId];
+        }
+        int[] count = fOpenUndeclaredCounts.get(tag);
+        return count != null ? count[0] : 0;
     }
 
-    private TagBalancer.TagContext fContext;
+    /**
+     * Returns the identifier of the default parent of the specified tag.
+     */
+    private int getParentTagId(int tagId) {
+        return onTagId(fDescriptor.getParentTagId(tagId));
+    }
 
-    private ITagDescriptor fDescriptor;
+    /**
+     * Returns the identifier of the specified tag.
+     */
+    private int getTagId(String tag) {
+        return onTagId(fDescriptor.getTagId(tag));
+    }
 
-    private IListener fListener;
+    /**
+     * Returns the position of the top-most opened tag with the specified name
+     * or -1 if there is no such a tag.
+     */
+    private int getTargetClosingContext(String tag, int tagId) {
+        for (int i = fSize - 1; i >= 0; i--) {
+            if (tagId >= 0 ? fTagIds[i] == tagId : fTags[i].equals(tag)) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
-    public TagBalancer(ITagDescriptor descriptor, IListener listener) {
-        fListener = listener;
-        fDescriptor = descriptor;
+    /**
+     * Returns the position of the top-most opened tag accepting the specified
+     * tag or -1 if there is no such a tag. Positions which are already known
+     * to not accept the tag are not checked again.
+     */
+    private int getTargetOpeningContext(int tagId) {
+        if (tagId < 0 || fSize == 0) {
+            return fSize - 1;
+        }
+        int rejected = fRejectedSizes[tagId];
+        if (rejected > fSize
+            || rejected == 0
+            || fPushStamps[rejected - 1] != fRejectedStamps[tagId]) {
+            rejected = 0;
+        }
+        for (int i = fSize - 1; i >= rejected; i--) {
+            if (acceptOpeningTag(i, tagId)) {
+                return i;
+            }
+        }
+        fRejectedSizes[tagId] = fSize;
+        fRejectedStamps[tagId] = fPushStamps[fSize - 1];
+        return -1;
     }
 
-    public void begin(String tag) {
-        TagBalancer.TagContext targetContext = fContext != null ? fContext
-            .getTargetOpeningContext(tag) : null;
-        if (targetContext == null) {
-            String parentTag = fDescriptor.getParentTag(tag);
-            if (parentTag != null) {
-                begin(parentTag);
-                targetContext = fContext != null ? fContext
-                    .getTargetOpeningContext(tag) : null;
+    /**
+     * Increments the number of opened tags with the specified name.
+     */
+    private void incOpenCount(String tag, int tagId) {
+        if (tagId >= 0) {
+            fOpenCounts[tagId]++;
+        } else {
+            int[] count = fOpenUndeclaredCounts.get(tag);
+            if (count == null) {
+                count = new int[1];
+                fOpenUndeclaredCounts.put(tag, count);
             }
+            count[0]++;
         }
-        while (fContext != targetContext) {
-            pop();
+    }
+
+    /**
+     * Returns <code>true</code> if the root tag has the specified name.
+     */
+    private boolean isRootTag(String tag, int tagId) {
+        return tagId >= 0 ? fTagIds[0] == tagId : tag.equals(fTags[0]);
+    }
+
+    /**
+     * Makes sure that the tag counters can keep the specified tag identifier
+     * and returns it. Counters grow only for adapted descriptors which give
+     * identifiers to tags when they are used the first time.
+     */
+    private int onTagId(int tagId) {
+        if (tagId >= fOpenCounts.length) {
+            int count = Math.max(fDescriptor.getTagCount(), tagId + 1);
+            fOpenCounts = Arrays.copyOf(fOpenCounts, count);
+            fRejectedSizes = Arrays.copyOf(fRejectedSizes, count);
+            fRejectedStamps = Arrays.copyOf(fRejectedStamps, count);
         }
-        push(tag);
+        return tagId;
     }
 
-    public void end(String tag) {
-        if (fContext != null) {
-            TagBalancer.TagContext targetContext = fContext
-                .getTargetClosingContext(tag);
-            while (targetContext != null) {
-                pop();
-                if (fContext == targetContext) {
-                    break;
-                }
-            }
+    protected void pop() {
+        if (fSize > 0) {
+            fSize--;
+            fAcceptedLeafId = NO_LEAF;
+            String tag = fTags[fSize];
+            fTags[fSize] = null;
+            decOpenCount(tag, fTagIds[fSize]);
+            fListener.end(tag);
         }
     }
 
-    public void finish() {
-        while (fContext != null) {
+    private void popTo(int size) {
+        while (fSize > size) {
             pop();
         }
     }
 
-    protected void pop() {
-        if (fContext != null) {
-            fListener.end(fContext.getTag());
-            fContext = fContext.getParent();
+    private void push(String tag, int tagId) {
+        if (fSize == fTags.length) {
+            int capacity = fSize * 2;
+            fTags = Arrays.copyOf(fTags, capacity);
+            fTagIds = Arrays.copyOf(fTagIds, capacity);
+            fDeclaredPositions = Arrays.copyOf(fDeclaredPositions, capacity);
+            fPushStamps = Arrays.copyOf(fPushStamps, capacity);
         }
+        fTags[fSize] = tag;
+        fTagIds[fSize] = tagId;
+        if (tagId >= 0) {
+            fDeclaredPositions[fSize] = fSize;
+        } else {
+            fDeclaredPositions[fSize] = fSize > 0
+                ? fDeclaredPositions[fSize - 1]
+                : -1;
+        }
+        fPushStamps[fSize] = ++fPushStamp;
+        incOpenCount(tag, tagId);
+        fSize++;
+        fAcceptedLeafId = NO_LEAF;
+        fListener.begin(tag);
+    }
+
+    /**
+     * Forgets all opened tags without notifying the listener. This method
+     * should be called before re-using this balancer for a new document if
+     * the previous one was not completed with the {@link #finish()} method.
+     */
+    public void reset() {
+        Arrays.fill(fTags, 0, fSize, null);
+        Arrays.fill(fOpenCounts, 0);
+        fOpenUndeclaredCounts.clear();
+        fSize = 0;
+        fAcceptedLeafId = NO_LEAF;
     }
 
-    private void push(String tag) {
-        fContext = new TagContext(fDescriptor, fContext, tag);
-        fListener.begin(fContext.getTag());
+    /**
+     * Sets the maximal number of opened tags. When a new tag is opened in a
+     * stack of this depth, it is opened in the top-most context accepting it
+     * which has room for a child, so it becomes a sibling of the top-most tag
+     * or of one of its parents. If there is no such a context (for example a
+     * table cell in a table row at the maximal depth) then the tag is dropped
+     * and the listener is not notified about it or its closing tag. This
+     * keeps the depth and the memory used by the stack bounded for documents
+     * with thousands of unclosed tags.
+     * 
+     * @param maxDepth the maximal number of opened tags; it should be a
+     *        positive number
+     */
+    public void setMaxDepth(int maxDepth) {
+        if (maxDepth <= 0) {
+            throw new IllegalArgumentException(
+                "The maximal depth should be a positive number. Depth: "
+                    + maxDepth
+                    + ".");
+        }
+        fMaxDepth = maxDepth;
     }
-}
\ No newline at end of file
+}
@@ -1,62 +1,113 @@
 package org.ubimix.commons.parser.balancer;
 
 import java.util.Map;
-import java.util.Set;
 
 /**
- * This object is used to define tag types.
- * 
+ * This object is used to define tag types. All declared tags are compiled to
+ * dense integer identifiers and the containment relation between tags is
+ * stored as a bit matrix, so checks like {@link #accepts(int, int)} are simple
+ * array accesses.
+ *
  * @author kotelnikov
  */
-public final class TagDescriptor implements ITagDescriptor {
+public final class TagDescriptor implements IIndexedTagDescriptor {
 
     /**
-     * Parent tags.
+     * Child tags. For each parent tag identifier this array contains a bit set
+     * of identifiers of all tags accepted by this parent.
      */
-    private Map<String, Set<String>> fChildTags;
+    private final long[][] fChildTags;
 
     /**
-     * A set of all declared tags.
+     * Parent tags. For each tag identifier this array contains the identifier
+     * of the default parent tag or {@link IIndexedTagDescriptor#UNDECLARED}.
      */
-    private Set<String> fDeclaredTags;
+    private final int[] fParentTags;
 
     /**
-     * Parent tags.
+     * Mapping of all declared tags to their identifiers.
      */
-    private Map<String, String> fParentTags;
+    private final Map<String, Integer> fTagIds;
+
+    /**
+     * Names of all declared tags.
+     */
+    private final String[] fTagNames;
 
     protected TagDescriptor(
-        Map<String, Set<String>> childTags,
-        Set<String> declaredTags,
-        Map<String, String> parentTags) {
+        String[] tagNames,
+        Map<String, Integer> tagIds,
+        long[][] childTags,
+        int[] parentTags) {
+        fTagNames = tagNames;
+        fTagIds = tagIds;
         fChildTags = childTags;
-        fDeclaredTags = declaredTags;
         fParentTags = parentTags;
     }
 
+    /**
+     * @see org.ubimix.commons.parser.balancer.IIndexedTagDescriptor#accepts(int, int)
+     */
+    @Override
+    public boolean accepts(int parentId, int tagId) {
+        if (parentId < 0 || tagId < 0) {
+            return false;
+        }
+        return (fChildTags[parentId][tagId >>> 6] & (1L << tagId)) != 0;
+    }
+
     /**
      * @see org.ubimix.commons.parser.balancer.ITagDescriptor#accepts(java.lang.String,
      *      java.lang.String)
      */
     @Override
     public boolean accepts(String parent, String tag) {
-        boolean result = false;
-        Set<String> set = fChildTags.get(parent);
-        if (set != null) {
-            result = set.contains(tag);
-        }
-        return result;
+        return accepts(getTagId(parent), getTagId(tag));
     }
 
     /**
      * Returns a parent for the given tag
-     * 
+     *
      * @param tag the tag for which a parent should be returned
      * @return a parent for the given tag
      */
     @Override
     public String getParentTag(String tag) {
-        return fParentTags.get(tag);
+        int parentId = getParentTagId(getTagId(tag));
+        return parentId >= 0 ? fTagNames[parentId] : null;
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.balancer.IIndexedTagDescriptor#getParentTagId(int)
+     */
+    @Override
+    public int getParentTagId(int tagId) {
+        return tagId >= 0 ? fParentTags[tagId] : UNDECLARED;
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.balancer.IIndexedTagDescriptor#getTagCount()
+     */
+    @Override
+    public int getTagCount() {
+        return fTagNames.length;
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.balancer.IIndexedTagDescriptor#getTagId(java.lang.String)
+     */
+    @Override
+    public int getTagId(String tag) {
+        Integer id = fTagIds.get(tag);
+        return id != null ? id.intValue() : UNDECLARED;
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.balancer.IIndexedTagDescriptor#getTagName(int)
+     */
+    @Override
+    public String getTagName(int tagId) {
+        return fTagNames[tagId];
     }
 
     /**
@@ -64,7 +115,7 @@ public final class TagDescriptor implements ITagDescriptor {
      */
     @Override
     public boolean isDeclared(String tag) {
-        return fDeclaredTags.contains(tag);
+        return fTagIds.containsKey(tag);
     }
 
 }
\ No newline at end of file
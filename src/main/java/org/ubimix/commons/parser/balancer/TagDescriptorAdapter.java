@@ -0,0 +1,111 @@
+package org.ubimix.commons.parser.balancer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gives identifiers to tags of an {@link ITagDescriptor} which does not
+ * implement the {@link IIndexedTagDescriptor} interface. Declared tags get
+ * their identifiers when they are used the first time, so the number of tags
+ * returned by {@link #getTagCount()} grows while tags are used.
+ * 
+ * @author kotelnikov
+ */
+class TagDescriptorAdapter implements IIndexedTagDescriptor {
+
+    private final ITagDescriptor fDescriptor;
+
+    private final Map<String, Integer> fTagIds = new HashMap<String, Integer>();
+
+    private final List<String> fTagNames = new ArrayList<String>();
+
+    public TagDescriptorAdapter(ITagDescriptor descriptor) {
+        fDescriptor = descriptor;
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.balancer.IIndexedTagDescriptor#accepts(int, int)
+     */
+    @Override
+    public boolean accepts(int parentId, int tagId) {
+        if (parentId < 0 || tagId < 0) {
+            return false;
+        }
+        return fDescriptor.accepts(
+            fTagNames.get(parentId),
+            fTagNames.get(tagId));
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.balancer.ITagDescriptor#accepts(java.lang.String,
+     *      java.lang.String)
+     */
+    @Override
+    public boolean accepts(String parent, String tag) {
+        return fDescriptor.accepts(parent, tag);
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.balancer.ITagDescriptor#getParentTag(java.lang.String)
+     */
+    @Override
+    public String getParentTag(String tag) {
+        return fDescriptor.getParentTag(tag);
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.balancer.IIndexedTagDescriptor#getParentTagId(int)
+     */
+    @Override
+    public int getParentTagId(int tagId) {
+        if (tagId < 0) {
+            return UNDECLARED;
+        }
+        String parent = fDescriptor.getParentTag(fTagNames.get(tagId));
+        return parent != null ? getTagId(parent) : UNDECLARED;
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.balancer.IIndexedTagDescriptor#getTagCount()
+     */
+    @Override
+    public int getTagCount() {
+        return fTagNames.size();
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.balancer.IIndexedTagDescriptor#getTagId(java.lang.String)
+     */
+    @Override
+    public int getTagId(String tag) {
+        Integer id = fTagIds.get(tag);
+        if (id == null) {
+            if (!fDescriptor.isDeclared(tag)) {
+                return UNDECLARED;
+            }
+            id = fTagNames.size();
+            fTagIds.put(tag, id);
+            fTagNames.add(tag);
+        }
+        return id.intValue();
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.balancer.IIndexedTagDescriptor#getTagName(int)
+     */
+    @Override
+    public String getTagName(int tagId) {
+        return fTagNames.get(tagId);
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.balancer.ITagDescriptor#isDeclared(java.lang.String)
+     */
+    @Override
+    public boolean isDeclared(String tag) {
+        return fDescriptor.isDeclared(tag);
+    }
+
+}
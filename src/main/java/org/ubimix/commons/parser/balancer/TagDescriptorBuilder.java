@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * @author kotelnikov
@@ -43,11 +44,16 @@ public class TagDescriptorBuilder {
         return result;
     }
 
+    /**
+     * Compiles all declared tags and their types into an immutable
+     * {@link TagDescriptor}. Each declared tag gets a dense integer identifier
+     * (tags are numbered in alphabetical order) and for each tag a bit set of
+     * all accepted child tags is built.
+     * 
+     * @return a new compiled tag descriptor
+     */
     public TagDescriptor build() {
-        Set<String> declaredTags = new HashSet<String>();
-        Map<String, String> parentTags = new HashMap<String, String>(
-            fParentTags);
-        Map<String, Set<String>> childTags = new HashMap<String, Set<String>>();
+        Set<String> declaredTags = new TreeSet<String>();
         declaredTags.addAll(fParentTags.keySet());
 
         Map<String, Set<TagType>> tagToType = new HashMap<String, Set<TagType>>();
@@ -64,20 +70,44 @@ public class TagDescriptorBuilder {
                 allTags.add(tag);
             }
         }
-        for (String tag : declaredTags) {
+
+        int count = declaredTags.size();
+        String[] tagNames = declaredTags.toArray(new String[count]);
+        Map<String, Integer> tagIds = new HashMap<String, Integer>();
+        for (int i = 0; i < count; i++) {
+            tagIds.put(tagNames[i], i);
+        }
+
+        int len = (count + 63) >>> 6;
+        long[][] childTags = new long[count][];
+        int[] parentTags = new int[count];
+        for (int i = 0; i < count; i++) {
+            String tag = tagNames[i];
+            long[] bits = new long[len];
+            childTags[i] = bits;
             Set<TagType> allTypes = get(tagToType, tag, false);
-            Set<String> allContainedTags = new HashSet<String>();
-            childTags.put(tag, allContainedTags);
-            for (TagType type : allTypes) {
-                Set<TagType> containedTypes = type.getContainedTypes();
-                for (TagType containedType : containedTypes) {
-                    Set<String> containedTags = typeToTag
-                        .get(containedType);
-                    allContainedTags.addAll(containedTags);
+            if (allTypes != null) {
+                for (TagType type : allTypes) {
+                    Set<TagType> containedTypes = type.getContainedTypes();
+                    for (TagType containedType : containedTypes) {
+                        Set<String> containedTags = typeToTag
+                            .get(containedType);
+                        if (containedTags == null) {
+                            continue;
+                        }
+                        for (String containedTag : containedTags) {
+                            int id = tagIds.get(containedTag);
+                            bits[id >>> 6] |= 1L << id;
+                        }
+                    }
                 }
             }
+            String parent = fParentTags.get(tag);
+            parentTags[i] = parent != null
+                ? tagIds.get(parent)
+                : IIndexedTagDescriptor.UNDECLARED;
         }
-        return new TagDescriptor(childTags, declaredTags, parentTags);
+        return new TagDescriptor(tagNames, tagIds, childTags, parentTags);
     }
 
     private <A, B> Set<B> get(Map<A, Set<B>> map, A key, boolean create) {
@@ -0,0 +1,160 @@
+package org.ubimix.commons.parser.html;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.ubimix.commons.parser.xml.AttrToken;
+
+/**
+ * An immutable read-only map of element attributes backed by the attribute
+ * tokens of a tag. Attribute names are kept in a small array (attributes of
+ * HTML elements are few, so a linear search is faster than hashing) and
+ * values are decoded only when they are requested for the first time.
+ * Attributes are iterated in the order of their declaration; if an attribute
+ * is declared more than once the last value is used.
+ * 
+ * @author kotelnikov
+ */
+final class AttributeMap extends AbstractMap<String, String> {
+
+    /**
+     * The maximal number of attributes for which this map should be used;
+     * bigger attribute sets should be stored in hash maps.
+     */
+    public static final int MAX_SIZE = 8;
+
+    /**
+     * Positions of attribute tokens corresponding to names
+     */
+    private final int[] fIndexes;
+
+    private final String[] fNames;
+
+    private int fSize;
+
+    private final List<AttrToken> fTokens;
+
+    /**
+     * Decoded attribute values
+     */
+    private final String[] fValues;
+
+    /**
+     * @param tokens attribute tokens
+     * @param capacity the maximal number of attributes to add
+     */
+    public AttributeMap(List<AttrToken> tokens, int capacity) {
+        fTokens = tokens;
+        fNames = new String[capacity];
+        fIndexes = new int[capacity];
+        fValues = new String[capacity];
+    }
+
+    /**
+     * Adds the attribute token with the specified index in the list of
+     * tokens.
+     * 
+     * @param name the name of the attribute
+     * @param index the index of the attribute token
+     */
+    void add(String name, int index) {
+        int pos = indexOf(name);
+        if (pos < 0) {
+            pos = fSize++;
+            fNames[pos] = name;
+        }
+        fIndexes[pos] = index;
+    }
+
+    /**
+     * @see java.util.AbstractMap#containsKey(java.lang.Object)
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @see java.util.AbstractMap#entrySet()
+     */
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<Map.Entry<String, String>>() {
+
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return new Iterator<Map.Entry<String, String>>() {
+
+                    private int fPos;
+
+                    @Override
+                    public boolean hasNext() {
+                        return fPos < fSize;
+                    }
+
+                    @Override
+                    public Map.Entry<String, String> next() {
+                        if (fPos >= fSize) {
+                            throw new NoSuchElementException();
+                        }
+                        int pos = fPos++;
+                        return new SimpleImmutableEntry<String, String>(
+                            fNames[pos],
+                            getValue(pos));
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return fSize;
+            }
+        };
+    }
+
+    /**
+     * @see java.util.AbstractMap#get(java.lang.Object)
+     */
+    @Override
+    public String get(Object key) {
+        int pos = indexOf(key);
+        return pos >= 0 ? getValue(pos) : null;
+    }
+
+    private String getValue(int pos) {
+        String value = fValues[pos];
+        if (value == null) {
+            value = fTokens.get(fIndexes[pos]).getValue();
+            fValues[pos] = value;
+        }
+        return value;
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < fSize; i++) {
+            if (fNames[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @see java.util.AbstractMap#size()
+     */
+    @Override
+    public int size() {
+        return fSize;
+    }
+
+}
@@ -0,0 +1,264 @@
+package org.ubimix.commons.parser.html;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+import org.ubimix.commons.parser.UnboundedCharStream;
+
+/**
+ * Common superclass for character loaders reading bytes. UTF-8, ISO-8859-1
+ * and US-ASCII bytes are decoded directly by this class: ASCII bytes (the
+ * whole HTML markup and most of the text in many documents) are returned as
+ * is, without going through a {@link CharsetDecoder}; only non-ASCII
+ * sequences are decoded. Malformed sequences are replaced by the U+FFFD
+ * character. All other charsets are decoded by a standard
+ * {@link CharsetDecoder}. Errors of the underlying source terminate the
+ * stream; they are reported by the {@link #checkError()} method.
+ * 
+ * @author kotelnikov
+ */
+public abstract class ByteCharLoader
+    implements
+    UnboundedCharStream.ICharLoader,
+    Closeable {
+
+    private static final int ENCODING_ASCII = 3;
+
+    private static final int ENCODING_LATIN1 = 1;
+
+    private static final int ENCODING_OTHER = 0;
+
+    private static final int ENCODING_UTF8 = 2;
+
+    private static final int NO_CHAR = -1;
+
+    private static final char REPLACEMENT_CHAR = '\uFFFD';
+
+    /**
+     * Returns <code>true</code> if the specified charset is decoded directly
+     * by this class.
+     * 
+     * @param charset the charset to check
+     * @return <code>true</code> if the specified charset is decoded directly
+     */
+    public static boolean isDirectlyDecoded(Charset charset) {
+        return getEncoding(charset) != ENCODING_OTHER;
+    }
+
+    private static int getEncoding(Charset charset) {
+        String name = charset.name();
+        if ("UTF-8".equals(name)) {
+            return ENCODING_UTF8;
+        }
+        if ("ISO-8859-1".equals(name)) {
+            return ENCODING_LATIN1;
+        }
+        if ("US-ASCII".equals(name)) {
+            return ENCODING_ASCII;
+        }
+        return ENCODING_OTHER;
+    }
+
+    /**
+     * Bytes to decode. Sub-classes set this buffer in the
+     * {@link #loadBytes()} method.
+     */
+    protected ByteBuffer fBytes = ByteBuffer.allocate(0);
+
+    /**
+     * Characters decoded by the {@link #fDecoder} (used only for charsets
+     * which are not decoded directly).
+     */
+    private CharBuffer fChars;
+
+    private CharsetDecoder fDecoder;
+
+    private final int fEncoding;
+
+    private boolean fEof;
+
+    private IOException fError;
+
+    private boolean fFlushed;
+
+    /**
+     * The second character of a surrogate pair to return.
+     */
+    private int fNextChar = NO_CHAR;
+
+    public ByteCharLoader(Charset charset) {
+        fEncoding = getEncoding(charset);
+        if (fEncoding == ENCODING_OTHER) {
+            fDecoder = charset
+                .newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            fChars = CharBuffer.allocate(ReaderCharLoader.DEFAULT_BUFFER_SIZE);
+            fChars.flip();
+        }
+    }
+
+    /**
+     * Throws the error raised while reading bytes (if any).
+     * 
+     * @throws IOException the error raised while reading bytes
+     */
+    public void checkError() throws IOException {
+        if (fError != null) {
+            throw fError;
+        }
+    }
+
+    /**
+     * Decodes the next UTF-8 sequence starting with the specified lead byte.
+     */
+    private int decodeUtf8(int lead) throws IOException {
+        int len;
+        int min;
+        int max;
+        int code;
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            len = 1;
+            code = lead & 0x1F;
+            min = 0x80;
+            max = 0xBF;
+        } else if (lead >= 0xE0 && lead <= 0xEF) {
+            len = 2;
+            code = lead & 0x0F;
+            // Exclude overlong sequences and surrogates
+            min = lead == 0xE0 ? 0xA0 : 0x80;
+            max = lead == 0xED ? 0x9F : 0xBF;
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+            len = 3;
+            code = lead & 0x07;
+            min = lead == 0xF0 ? 0x90 : 0x80;
+            max = lead == 0xF4 ? 0x8F : 0xBF;
+        } else {
+            return REPLACEMENT_CHAR;
+        }
+        for (int i = 0; i < len; i++) {
+            if (!ensureBytes(1)) {
+                return REPLACEMENT_CHAR;
+            }
+            int b = fBytes.get(fBytes.position()) & 0xFF;
+            if (b < min || b > max) {
+                if (i == 0 && lead == 0xED && b >= 0xA0 && b <= 0xBF) {
+                    // An encoded surrogate is replaced by one character
+                    // exactly as the standard decoder does.
+                    fBytes.get();
+                    if (ensureBytes(1)) {
+                        b = fBytes.get(fBytes.position()) & 0xC0;
+                        if (b == 0x80) {
+                            fBytes.get();
+                        }
+                    }
+                }
+                return REPLACEMENT_CHAR;
+            }
+            fBytes.get();
+            code = (code << 6) | (b & 0x3F);
+            min = 0x80;
+            max = 0xBF;
+        }
+        if (code >= 0x10000) {
+            // Split the code point in a surrogate pair
+            code -= 0x10000;
+            fNextChar = 0xDC00 + (code & 0x3FF);
+            code = 0xD800 + (code >>> 10);
+        }
+        return code;
+    }
+
+    /**
+     * Makes sure that the specified number of bytes is available.
+     */
+    private boolean ensureBytes(int count) throws IOException {
+        while (fBytes.remaining() < count && !fEof) {
+            if (!loadBytes()) {
+                fEof = true;
+            }
+        }
+        return fBytes.remaining() >= count;
+    }
+
+    /**
+     * Loads new bytes in the {@link #fBytes} buffer. Bytes not consumed yet
+     * should stay available in the buffer.
+     * 
+     * @return <code>false</code> if there is no more bytes to load
+     * @throws IOException
+     */
+    protected abstract boolean loadBytes() throws IOException;
+
+    /**
+     * Decodes the next portion of characters using the charset decoder.
+     */
+    private boolean loadChars() throws IOException {
+        fChars.clear();
+        try {
+            while (fChars.position() == 0 && !fFlushed) {
+                fDecoder.decode(fBytes, fChars, fEof);
+                if (fChars.position() > 0) {
+                    break;
+                }
+                if (fEof) {
+                    fDecoder.flush(fChars);
+                    fFlushed = true;
+                } else if (!loadBytes()) {
+                    fEof = true;
+                }
+            }
+        } finally {
+            fChars.flip();
+        }
+        return fChars.hasRemaining();
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.UnboundedCharStream.ICharLoader#readNext()
+     */
+    @Override
+    public int readNext() {
+        if (fError != null) {
+            return -1;
+        }
+        try {
+            if (fEncoding == ENCODING_OTHER) {
+                if (!fChars.hasRemaining() && !loadChars()) {
+                    return -1;
+                }
+                return fChars.get();
+            }
+            if (fNextChar != NO_CHAR) {
+                int ch = fNextChar;
+                fNextChar = NO_CHAR;
+                return ch;
+            }
+            if (!fBytes.hasRemaining() && !ensureBytes(1)) {
+                return -1;
+            }
+            int b = fBytes.get();
+            if (b >= 0) {
+                return b;
+            }
+            b &= 0xFF;
+            switch (fEncoding) {
+                case ENCODING_UTF8:
+                    return decodeUtf8(b);
+                case ENCODING_LATIN1:
+                    return b;
+                default:
+                    return REPLACEMENT_CHAR;
+            }
+        } catch (IOException e) {
+            fError = e;
+            return -1;
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package org.ubimix.commons.parser.html;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Loads characters from a blocking {@link ReadableByteChannel} using a
+ * fixed-size byte buffer. The buffer should be able to keep the longest byte
+ * sequence of one character in the charset (see
+ * {@link #getMinBufferSize(Charset)}); otherwise an incomplete sequence at
+ * the end of the buffer could never be decoded.
+ * 
+ * @author kotelnikov
+ */
+public class ChannelCharLoader extends ByteCharLoader {
+
+    /**
+     * Returns the minimal size of byte buffers for the specified charset: the
+     * maximal number of bytes of one character but not less than 4 (the
+     * longest UTF-8 sequence).
+     * 
+     * @param charset the charset of bytes
+     * @return the minimal size of byte buffers for the specified charset
+     */
+    public static int getMinBufferSize(Charset charset) {
+        int size = 4;
+        if (charset.canEncode()) {
+            float max = charset.newEncoder().maxBytesPerChar();
+            size = Math.max(size, (int) Math.ceil(max));
+        }
+        return size;
+    }
+
+    private final ReadableByteChannel fChannel;
+
+    public ChannelCharLoader(ReadableByteChannel channel, Charset charset) {
+        this(channel, charset, ReaderCharLoader.DEFAULT_BUFFER_SIZE);
+    }
+
+    public ChannelCharLoader(
+        ReadableByteChannel channel,
+        Charset charset,
+        int bufferSize) {
+        super(charset);
+        int minSize = getMinBufferSize(charset);
+        if (bufferSize < minSize) {
+            throw new IllegalArgumentException(
+                "The buffer size should be at least "
+                    + minSize
+                    + " bytes for the "
+                    + charset.name()
+                    + " charset. Size: "
+                    + bufferSize
+                    + ".");
+        }
+        fChannel = channel;
+        fBytes = ByteBuffer.allocate(bufferSize);
+        fBytes.flip();
+    }
+
+    /**
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        fChannel.close();
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.html.ByteCharLoader#loadBytes()
+     */
+    @Override
+    protected boolean loadBytes() throws IOException {
+        fBytes.compact();
+        if (!fBytes.hasRemaining()) {
+            // The buffer is full of bytes which are not decoded yet
+            fBytes.flip();
+            return true;
+        }
+        int len;
+        try {
+            do {
+                len = fChannel.read(fBytes);
+            } while (len == 0 && fBytes.hasRemaining());
+        } finally {
+            fBytes.flip();
+        }
+        return len > 0;
+    }
+
+}
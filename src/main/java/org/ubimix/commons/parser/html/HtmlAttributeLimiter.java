@@ -0,0 +1,235 @@
+package org.ubimix.commons.parser.html;
+
+import org.ubimix.commons.parser.AbstractCharStream.Pointer;
+import org.ubimix.commons.parser.ICharStream;
+import org.ubimix.commons.parser.ICharStream.IMarker;
+import org.ubimix.commons.parser.ICharStream.IPointer;
+import org.ubimix.commons.parser.ITokenizer;
+import org.ubimix.commons.parser.StreamToken;
+import org.ubimix.commons.parser.html.HtmlParserLimits.Limit;
+import org.ubimix.commons.parser.xml.TagToken;
+
+/**
+ * This tokenizer protects parsers from opening tags with too many
+ * attributes. It is used by parsers with a limited number of attributes (see
+ * {@link HtmlParserLimits#getMaxAttributes()}) before the XML tokenizer. The
+ * tokenizer counts attributes of each opening tag without creating any
+ * objects and stops as soon as the limit is exceeded, so attribute tokens
+ * are never created for such tags. Tags within the limit are left to the XML
+ * tokenizer. Tags exceeding the limit either abort parsing with a
+ * {@link HtmlLimitException} or they are skipped and returned as tags
+ * without attributes.
+ * 
+ * @author kotelnikov
+ */
+public class HtmlAttributeLimiter implements ITokenizer {
+
+    /**
+     * Opening tags returned by this tokenizer.
+     */
+    private static class LimitedTagToken extends TagToken {
+
+        public LimitedTagToken() {
+            init(true, false);
+        }
+
+        void setClose(boolean close) {
+            init(true, close);
+        }
+
+    }
+
+    private static boolean isSpace(char ch) {
+        return ch == ' '
+            || ch == '\t'
+            || ch == '\n'
+            || ch == '\r'
+            || ch == '\f';
+    }
+
+    private static boolean isTagNameStart(char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z');
+    }
+
+    /**
+     * Skips one attribute; the stream should point to the first character
+     * of the attribute name.
+     */
+    private static void skipAttribute(ICharStream stream) {
+        // The first character is a part of the name even if it is a '='
+        stream.incPos();
+        while (!stream.isTerminated()) {
+            char ch = stream.getChar();
+            if (isSpace(ch) || ch == '=' || ch == '>' || ch == '/') {
+                break;
+            }
+            stream.incPos();
+        }
+        skipSpaces(stream);
+        if (stream.isTerminated() || stream.getChar() != '=') {
+            return;
+        }
+        stream.incPos();
+        skipSpaces(stream);
+        if (stream.isTerminated()) {
+            return;
+        }
+        char quote = stream.getChar();
+        if (quote == '"' || quote == '\'') {
+            stream.incPos();
+            while (!stream.isTerminated() && stream.getChar() != quote) {
+                stream.incPos();
+            }
+            if (!stream.isTerminated()) {
+                stream.incPos();
+            }
+        } else {
+            while (!stream.isTerminated()) {
+                char ch = stream.getChar();
+                if (isSpace(ch) || ch == '>') {
+                    break;
+                }
+                stream.incPos();
+            }
+        }
+    }
+
+    /**
+     * Skips attributes of a tag. The stream should point to the end of the
+     * tag name.
+     * 
+     * @param stream the stream to read
+     * @param maxCount the maximal number of attributes to skip
+     * @return the number of skipped attributes
+     */
+    private static int skipAttributes(ICharStream stream, int maxCount) {
+        int count = 0;
+        while (count < maxCount) {
+            skipSpaces(stream);
+            if (stream.isTerminated()) {
+                break;
+            }
+            char ch = stream.getChar();
+            if (ch == '>') {
+                break;
+            }
+            if (ch == '/') {
+                // Single slashes in tags are ignored
+                stream.incPos();
+                if (!stream.isTerminated() && stream.getChar() == '>') {
+                    break;
+                }
+                continue;
+            }
+            skipAttribute(stream);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Skips the rest of a tag including the final '&gt;' symbol.
+     * 
+     * @param stream the stream to read
+     * @return <code>true</code> if the tag is finished by the "/&gt;"
+     *         sequence
+     */
+    private static boolean skipTagEnd(ICharStream stream) {
+        boolean close = false;
+        while (true) {
+            skipSpaces(stream);
+            if (stream.isTerminated()) {
+                return false;
+            }
+            char ch = stream.getChar();
+            if (ch == '>') {
+                stream.incPos();
+                return close;
+            }
+            if (ch == '/') {
+                stream.incPos();
+                close = true;
+            } else {
+                skipAttribute(stream);
+                close = false;
+            }
+        }
+    }
+
+    private static void skipSpaces(ICharStream stream) {
+        while (!stream.isTerminated() && isSpace(stream.getChar())) {
+            stream.incPos();
+        }
+    }
+
+    private static void skipTagName(ICharStream stream) {
+        while (!stream.isTerminated()) {
+            char ch = stream.getChar();
+            if (isSpace(ch) || ch == '/' || ch == '>') {
+                break;
+            }
+            stream.incPos();
+        }
+    }
+
+    /**
+     * If this flag is <code>true</code> then tags exceeding the limit abort
+     * parsing.
+     */
+    private final boolean fAbort;
+
+    private final int fMaxAttributes;
+
+    /**
+     * @param maxAttributes the maximal number of attributes of a tag
+     * @param abort if this flag is <code>true</code> then tags exceeding the
+     *        limit abort parsing; otherwise such tags are returned without
+     *        attributes
+     */
+    public HtmlAttributeLimiter(int maxAttributes, boolean abort) {
+        fMaxAttributes = maxAttributes;
+        fAbort = abort;
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.ITokenizer#read(org.ubimix.commons.parser.ICharStream)
+     */
+    @Override
+    public StreamToken read(ICharStream stream) {
+        if (stream.isTerminated() || stream.getChar() != '<') {
+            return null;
+        }
+        IMarker marker = stream.markPosition();
+        stream.incPos();
+        if (stream.isTerminated() || !isTagNameStart(stream.getChar())) {
+            marker.close(true);
+            return null;
+        }
+        skipTagName(stream);
+        int count = skipAttributes(stream, fMaxAttributes + 1);
+        marker.close(true);
+        if (count <= fMaxAttributes) {
+            // This tag is read by the XML tokenizer
+            return null;
+        }
+        if (fAbort) {
+            throw new HtmlLimitException(Limit.ATTRIBUTES, fMaxAttributes);
+        }
+        // The token covers only the tag name, so the rest of the tag is
+        // skipped without keeping it in the stream buffer.
+        marker = stream.markPosition();
+        stream.incPos();
+        skipTagName(stream);
+        LimitedTagToken token = marker.getToken(new LimitedTagToken());
+        marker.close(false);
+        IPointer begin = token.getBegin();
+        Pointer b = new Pointer(
+            begin.getPos() + 1,
+            begin.getColumn() + 1,
+            begin.getLine());
+        token.setName(b, token.getEnd(), token.getText().substring(1));
+        token.setClose(skipTagEnd(stream));
+        return token;
+    }
+
+}
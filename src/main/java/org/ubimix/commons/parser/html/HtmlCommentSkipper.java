@@ -0,0 +1,78 @@
+package org.ubimix.commons.parser.html;
+
+import org.ubimix.commons.parser.ICharStream;
+import org.ubimix.commons.parser.ICharStream.IMarker;
+import org.ubimix.commons.parser.ITokenizer;
+import org.ubimix.commons.parser.StreamToken;
+import org.ubimix.commons.parser.html.HtmlRawTextTokenizer.SkippedContentToken;
+
+/**
+ * This tokenizer skips comments. It looks for the "--&gt;" sequence directly
+ * in the stream and does not keep the content of comments, so comments of any
+ * size are skipped without buffering or copying their text. The returned
+ * {@link SkippedContentToken} covers only the final '&gt;' symbol of the
+ * comment. Comments are finished as defined by the HTML5 specification: by
+ * the first "--&gt;" or "--!&gt;" sequence ("&lt;!--&gt;" and "&lt;!---&gt;"
+ * are empty comments) or by the end of the stream.
+ * 
+ * @author kotelnikov
+ */
+public class HtmlCommentSkipper implements ITokenizer {
+
+    /**
+     * The shared instance of this tokenizer. Tokenizers are stateless, so
+     * this instance can be used by any number of parsers.
+     */
+    public static final HtmlCommentSkipper INSTANCE = new HtmlCommentSkipper();
+
+    private static final char[] COMMENT_START = "<!--".toCharArray();
+
+    /**
+     * @see org.ubimix.commons.parser.ITokenizer#read(org.ubimix.commons.parser.ICharStream)
+     */
+    @Override
+    public StreamToken read(ICharStream stream) {
+        if (stream.isTerminated() || stream.getChar() != '<') {
+            return null;
+        }
+        IMarker marker = stream.markPosition();
+        for (char ch : COMMENT_START) {
+            if (stream.isTerminated() || stream.getChar() != ch) {
+                marker.close(true);
+                return null;
+            }
+            stream.incPos();
+        }
+        marker.close(false);
+        // The number of dashes before the current character
+        int dashes = 0;
+        // This flag is true if the current character follows "--!"
+        boolean bang = false;
+        // This flag is true while the comment contains only dashes; the
+        // first '>' finishes such a comment, so "<!-->" and "<!--->" are
+        // empty comments.
+        boolean start = true;
+        while (!stream.isTerminated()) {
+            char ch = stream.getChar();
+            if (ch == '>' && (start || bang || dashes >= 2)) {
+                break;
+            }
+            bang = ch == '!' && dashes >= 2;
+            if (ch == '-') {
+                dashes++;
+            } else {
+                dashes = 0;
+                start = false;
+            }
+            stream.incPos();
+        }
+        marker = stream.markPosition();
+        if (!stream.isTerminated()) {
+            stream.incPos();
+        }
+        SkippedContentToken token = marker.getToken(new SkippedContentToken());
+        marker.close(false);
+        return token;
+    }
+
+}
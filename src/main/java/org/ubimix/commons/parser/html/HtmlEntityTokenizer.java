@@ -0,0 +1,387 @@
+package org.ubimix.commons.parser.html;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ubimix.commons.parser.ICharStream;
+import org.ubimix.commons.parser.ICharStream.IMarker;
+import org.ubimix.commons.parser.ITokenizer;
+import org.ubimix.commons.parser.StreamToken;
+import org.ubimix.commons.parser.xml.Entity;
+
+/**
+ * This tokenizer recognizes named character references using a compiled
+ * {@link HtmlEntityTrie}. Names are matched in a single pass over the stream;
+ * the longest known name is used, so "&amp;notin" is recognized as the
+ * legacy "&amp;not" reference followed by the "in" text when the
+ * terminating ';' symbol is not required. Numeric references ("&amp;#224;",
+ * "&amp;#xE0;") can be recognized as well; they are decoded arithmetically
+ * to code points following the rules of the HTML5 specification, without
+ * any entity lookups.
+ * 
+ * @author kotelnikov
+ */
+public class HtmlEntityTokenizer implements ITokenizer {
+
+    /**
+     * Tokens returned by the {@link HtmlEntityTokenizer}.
+     */
+    public static class HtmlEntityToken extends StreamToken {
+
+        private int fCodePoint = -1;
+
+        private Entity fEntity;
+
+        private String fValue;
+
+        /**
+         * Returns the code point of a numeric reference or -1 if this token
+         * is a named reference.
+         * 
+         * @return the code point of a numeric reference
+         */
+        public int getCodePoint() {
+            return fCodePoint;
+        }
+
+        /**
+         * Returns the entity corresponding to this reference or
+         * <code>null</code> if this reference has no registered entity.
+         * 
+         * @return the entity corresponding to this reference
+         */
+        public Entity getEntity() {
+            return fEntity;
+        }
+
+        /**
+         * Returns the decoded value of this reference.
+         * 
+         * @return the decoded value of this reference
+         */
+        public String getValue() {
+            if (fValue == null && fCodePoint >= 0) {
+                fValue = new String(Character.toChars(fCodePoint));
+            }
+            return fValue;
+        }
+
+    }
+
+    /**
+     * Replacements of code points in the 0x80-0x9F range as defined by the
+     * HTML5 specification; zero values mean that code points are kept.
+     */
+    private static final char[] C1_REPLACEMENTS = {
+        '\u20AC',
+        0,
+        '\u201A',
+        '\u0192',
+        '\u201E',
+        '\u2026',
+        '\u2020',
+        '\u2021',
+        '\u02C6',
+        '\u2030',
+        '\u0160',
+        '\u2039',
+        '\u0152',
+        0,
+        '\u017D',
+        0,
+        0,
+        '\u2018',
+        '\u2019',
+        '\u201C',
+        '\u201D',
+        '\u2022',
+        '\u2013',
+        '\u2014',
+        '\u02DC',
+        '\u2122',
+        '\u0161',
+        '\u203A',
+        '\u0153',
+        0,
+        '\u017E',
+        '\u0178' };
+
+    /**
+     * The replacement character used for invalid numeric references
+     */
+    private static final int REPLACEMENT_CHARACTER = 0xFFFD;
+
+    /**
+     * Returns the code point corresponding to the specified value of a
+     * numeric reference. Null characters, surrogates and values outside of
+     * the Unicode range are replaced by the U+FFFD character; values in the
+     * 0x80-0x9F range are interpreted as Windows-1252 characters.
+     * 
+     * @param value the value of a numeric reference
+     * @return the code point corresponding to the value
+     */
+    public static int getCodePoint(int value) {
+        if (value == 0
+            || value > Character.MAX_CODE_POINT
+            || (value >= Character.MIN_SURROGATE
+                && value <= Character.MAX_SURROGATE)) {
+            return REPLACEMENT_CHARACTER;
+        }
+        if (value >= 0x80 && value <= 0x9F) {
+            char ch = C1_REPLACEMENTS[value - 0x80];
+            if (ch != 0) {
+                return ch;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the value of the specified ASCII digit.
+     * 
+     * @param ch the digit
+     * @param radix the radix (10 or 16)
+     * @return the value of the digit or -1 if the character is not a digit
+     */
+    private static int getDigit(char ch, int radix) {
+        if (ch >= '0' && ch <= '9') {
+            return ch - '0';
+        }
+        if (radix == 16) {
+            if (ch >= 'a' && ch <= 'f') {
+                return ch - 'a' + 10;
+            }
+            if (ch >= 'A' && ch <= 'F') {
+                return ch - 'A' + 10;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns all entities declared as public fields of the given entity
+     * dictionaries.
+     * 
+     * @param dictionaries entity dictionaries
+     * @return a list of all entities defined in the dictionaries
+     */
+    public static List<Entity> getEntities(Object... dictionaries) {
+        List<Entity> result = new ArrayList<Entity>();
+        try {
+            for (Object dictionary : dictionaries) {
+                for (Field field : dictionary.getClass().getFields()) {
+                    if (Entity.class.equals(field.getType())) {
+                        result.add((Entity) field.get(dictionary));
+                    }
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a tokenizer recognizing all named references defined by the
+     * HTML5 specification, including legacy references without the
+     * terminating ';' symbol. References having the same names as the given
+     * entities are reported with these entities; all others are reported
+     * only with their decoded values.
+     * 
+     * @param entities registered entities
+     * @return a new tokenizer recognizing all HTML5 references
+     */
+    public static HtmlEntityTokenizer newHtml5Tokenizer(List<Entity> entities) {
+        Map<String, Entity> map = new HashMap<String, Entity>();
+        for (Entity entity : entities) {
+            map.put(entity.getName(), entity);
+        }
+        int len = HtmlNamedReferences.SIZE;
+        String[] names = new String[len];
+        String[] values = new String[len];
+        Entity[] list = new Entity[len];
+        for (int i = 0; i < len; i++) {
+            String name = HtmlNamedReferences.getName(i);
+            names[i] = name;
+            values[i] = HtmlNamedReferences.getValue(i);
+            if (name.endsWith(";")) {
+                name = name.substring(0, name.length() - 1);
+            }
+            list[i] = map.get(name);
+        }
+        return new HtmlEntityTokenizer(names, values, list, true);
+    }
+
+    private final Entity[] fEntities;
+
+    /**
+     * This flag defines if numeric references should be recognized.
+     */
+    private final boolean fNumericReferences;
+
+    private final HtmlEntityTrie fTrie;
+
+    private final String[] fValues;
+
+    /**
+     * Creates a tokenizer recognizing the specified entities. References
+     * should be terminated by the ';' symbol.
+     * 
+     * @param entities entities to recognize
+     */
+    public HtmlEntityTokenizer(List<Entity> entities) {
+        int len = entities.size();
+        String[] names = new String[len];
+        fEntities = new Entity[len];
+        fValues = new String[len];
+        for (int i = 0; i < len; i++) {
+            Entity entity = entities.get(i);
+            names[i] = entity.getName() + ";";
+            fEntities[i] = entity;
+            fValues[i] = new String(Character.toChars(entity.getCode()));
+        }
+        fTrie = new HtmlEntityTrie(names);
+        fNumericReferences = false;
+    }
+
+    /**
+     * Creates a tokenizer recognizing references with the specified names.
+     * Names should contain the terminating ';' symbol if it is required.
+     * 
+     * @param names names of references
+     * @param values decoded values of references
+     * @param entities entities corresponding to references; this array can
+     *        contain <code>null</code> values
+     */
+    public HtmlEntityTokenizer(
+        String[] names,
+        String[] values,
+        Entity[] entities) {
+        this(names, values, entities, false);
+    }
+
+    /**
+     * Creates a tokenizer recognizing references with the specified names.
+     * Names should contain the terminating ';' symbol if it is required.
+     * 
+     * @param names names of references
+     * @param values decoded values of references
+     * @param entities entities corresponding to references; this array can
+     *        contain <code>null</code> values
+     * @param numericReferences if this flag is <code>true</code> then
+     *        numeric references are recognized as well
+     */
+    public HtmlEntityTokenizer(
+        String[] names,
+        String[] values,
+        Entity[] entities,
+        boolean numericReferences) {
+        fEntities = entities;
+        fValues = values;
+        fTrie = new HtmlEntityTrie(names);
+        fNumericReferences = numericReferences;
+    }
+
+    /**
+     * Reads the numeric reference starting at the current position of the
+     * stream. The stream should point to the '#' symbol following the '&amp;'
+     * one. The terminating ';' symbol is optional.
+     * 
+     * @param stream the stream to read
+     * @param marker the marker set at the beginning of the reference
+     * @return a token corresponding to the reference or <code>null</code> if
+     *         the reference has no digits
+     */
+    private StreamToken readNumericReference(
+        ICharStream stream,
+        IMarker marker) {
+        stream.incPos();
+        int radix = 10;
+        if (!stream.isTerminated()) {
+            char ch = stream.getChar();
+            if (ch == 'x' || ch == 'X') {
+                radix = 16;
+                stream.incPos();
+            }
+        }
+        int value = 0;
+        boolean digits = false;
+        while (!stream.isTerminated()) {
+            int digit = getDigit(stream.getChar(), radix);
+            if (digit < 0) {
+                break;
+            }
+            digits = true;
+            if (value <= Character.MAX_CODE_POINT) {
+                value = value * radix + digit;
+            }
+            stream.incPos();
+        }
+        if (!digits) {
+            marker.close(true);
+            return null;
+        }
+        if (!stream.isTerminated() && stream.getChar() == ';') {
+            stream.incPos();
+        }
+        HtmlEntityToken token = marker.getToken(new HtmlEntityToken());
+        marker.close(false);
+        token.fCodePoint = getCodePoint(value);
+        return token;
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.ITokenizer#read(org.ubimix.commons.parser.ICharStream)
+     */
+    @Override
+    public StreamToken read(ICharStream stream) {
+        if (stream.isTerminated() || stream.getChar() != '&') {
+            return null;
+        }
+        IMarker marker = stream.markPosition();
+        stream.incPos();
+        if (fNumericReferences
+            && !stream.isTerminated()
+            && stream.getChar() == '#') {
+            return readNumericReference(stream, marker);
+        }
+        int value = HtmlEntityTrie.NO_VALUE;
+        int valueLen = 0;
+        int len = 0;
+        int node = HtmlEntityTrie.ROOT;
+        while (!stream.isTerminated()) {
+            node = fTrie.next(node, stream.getChar());
+            if (node == HtmlEntityTrie.NO_NODE) {
+                break;
+            }
+            len++;
+            stream.incPos();
+            int v = fTrie.getValue(node);
+            if (v != HtmlEntityTrie.NO_VALUE) {
+                value = v;
+                valueLen = len;
+            }
+        }
+        if (value == HtmlEntityTrie.NO_VALUE) {
+            marker.close(true);
+            return null;
+        }
+        if (valueLen < len) {
+            // Return to the end of the longest recognized name
+            marker.close(true);
+            marker = stream.markPosition();
+            for (int i = 0; i <= valueLen; i++) {
+                stream.incPos();
+            }
+        }
+        HtmlEntityToken token = marker.getToken(new HtmlEntityToken());
+        marker.close(false);
+        token.fEntity = fEntities[value];
+        token.fValue = fValues[value];
+        return token;
+    }
+
+}
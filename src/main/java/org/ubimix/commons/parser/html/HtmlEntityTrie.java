@@ -0,0 +1,144 @@
+package org.ubimix.commons.parser.html;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable compiled trie of entity names. The trie is stored in a few
+ * flat arrays: children of each node are kept together and sorted by their
+ * characters, so a transition is a binary search in a small array range.
+ * Names are recognized character by character directly in the source
+ * stream, so no strings are created during the lookup.
+ * 
+ * @author kotelnikov
+ */
+public class HtmlEntityTrie {
+
+    private static class Node {
+
+        private Map<Character, Node> fChildren = new TreeMap<Character, Node>();
+
+        private int fValue = NO_VALUE;
+
+    }
+
+    /**
+     * This value is returned by the {@link #next(int, char)} method if the
+     * node has no transition for the given character.
+     */
+    public static final int NO_NODE = -1;
+
+    /**
+     * This value is returned by the {@link #getValue(int)} method for nodes
+     * which do not terminate any name.
+     */
+    public static final int NO_VALUE = -1;
+
+    /**
+     * The root node of all tries.
+     */
+    public static final int ROOT = 0;
+
+    /**
+     * Characters of transitions leading to nodes
+     */
+    private final char[] fChars;
+
+    /**
+     * The number of children of each node
+     */
+    private final int[] fCounts;
+
+    /**
+     * The identifier of the first child of each node
+     */
+    private final int[] fFirstChildren;
+
+    /**
+     * Values of nodes
+     */
+    private final int[] fValues;
+
+    /**
+     * Creates a trie for the specified names. The value of each name is its
+     * position in the given array.
+     * 
+     * @param names names to recognize
+     */
+    public HtmlEntityTrie(String[] names) {
+        Node root = new Node();
+        int count = 1;
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            Node node = root;
+            for (int j = 0; j < name.length(); j++) {
+                Character ch = name.charAt(j);
+                Node child = node.fChildren.get(ch);
+                if (child == null) {
+                    child = new Node();
+                    node.fChildren.put(ch, child);
+                    count++;
+                }
+                node = child;
+            }
+            node.fValue = i;
+        }
+        fChars = new char[count];
+        fCounts = new int[count];
+        fFirstChildren = new int[count];
+        fValues = new int[count];
+        // Nodes are numbered in the breadth-first order, so children of
+        // each node get consecutive identifiers.
+        List<Node> nodes = new ArrayList<Node>(count);
+        nodes.add(root);
+        for (int id = 0; id < nodes.size(); id++) {
+            Node node = nodes.get(id);
+            fValues[id] = node.fValue;
+            fFirstChildren[id] = nodes.size();
+            fCounts[id] = node.fChildren.size();
+            for (Map.Entry<Character, Node> entry : node.fChildren.entrySet()) {
+                fChars[nodes.size()] = entry.getKey();
+                nodes.add(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns the value of the specified node.
+     * 
+     * @param node the node
+     * @return the value of the node or {@link #NO_VALUE} if the node does not
+     *         terminate a name
+     */
+    public int getValue(int node) {
+        return fValues[node];
+    }
+
+    /**
+     * Returns the node following the specified one by the given character.
+     * 
+     * @param node the current node
+     * @param ch the next character of a name
+     * @return the next node or {@link #NO_NODE} if no names continue with
+     *         the given character
+     */
+    public int next(int node, char ch) {
+        int low = fFirstChildren[node];
+        int high = low + fCounts[node] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char c = fChars[mid];
+            if (c < ch) {
+                low = mid + 1;
+            } else if (c > ch) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return NO_NODE;
+    }
+
+}
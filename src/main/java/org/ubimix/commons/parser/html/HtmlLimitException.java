@@ -0,0 +1,52 @@
+package org.ubimix.commons.parser.html;
+
+import org.ubimix.commons.parser.html.HtmlParserLimits.Limit;
+
+/**
+ * This exception is thrown by {@link HtmlParser}s when a document exceeds
+ * one of the limits defined by {@link HtmlParserLimits} and the limits use
+ * the {@link HtmlParserLimits.Policy#ABORT} policy.
+ * 
+ * @author kotelnikov
+ */
+public class HtmlLimitException extends RuntimeException {
+
+    private static final long serialVersionUID = -3614785036201836213L;
+
+    private final Limit fLimit;
+
+    private final int fValue;
+
+    /**
+     * @param limit the type of the exceeded limit
+     * @param value the value of the exceeded limit
+     */
+    public HtmlLimitException(Limit limit, int value) {
+        super("The document exceeds the "
+            + limit
+            + " limit. Limit: "
+            + value
+            + ".");
+        fLimit = limit;
+        fValue = value;
+    }
+
+    /**
+     * Returns the type of the exceeded limit.
+     * 
+     * @return the type of the exceeded limit
+     */
+    public Limit getLimit() {
+        return fLimit;
+    }
+
+    /**
+     * Returns the value of the exceeded limit.
+     * 
+     * @return the value of the exceeded limit
+     */
+    public int getValue() {
+        return fValue;
+    }
+
+}
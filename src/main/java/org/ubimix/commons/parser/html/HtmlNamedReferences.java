@@ -0,0 +1,635 @@
+package org.ubimix.commons.parser.html;
+
+/**
+ * The table of named character references defined by the HTML5
+ * specification. The table is stored in two packed strings instead of
+ * separate constants, so it takes little space in the class file; it is
+ * unpacked only when this class is used for the first time. Names without
+ * the trailing ';' symbol are legacy references recognized without the
+ * terminating symbol.
+ * <p>
+ * The packed tables are generated from the official JSON table of references
+ * by the <code>HtmlNamedReferencesGenerator</code> class of test sources;
+ * they should not be modified manually. To update them, download the
+ * <code>entities.json</code> file published with the specification and run
+ * the generator with the path to this file and the path to this source
+ * file.
+ * </p>
+ * 
+ * @see http://www.whatwg.org/specs/web-apps/current-work/multipage/named-character-references.html
+ * @author kotelnikov
+ */
+final class HtmlNamedReferences {
+
+    /**
+     * Names of all references separated by spaces.
+     */
+    private static final String PACKED_NAMES = ""
+        + "AElig AElig; AMP AMP; Aacute Aacute; Abreve; Acirc Acirc; Acy; Afr; "
+        + "Agrave Agrave; Alpha; Amacr; And; Aogon; Aopf; ApplyFunction; Aring "
+        + "Aring; Ascr; Assign; Atilde Atilde; Auml Auml; Backslash; Barv; "
+        + "Barwed; Bcy; Because; Bernoullis; Beta; Bfr; Bopf; Breve; Bscr; "
+        + "Bumpeq; CHcy; COPY COPY; Cacute; Cap; CapitalDifferentialD; "
+        + "Cayleys; Ccaron; Ccedil Ccedil; Ccirc; Cconint; Cdot; Cedilla; "
+        + "CenterDot; Cfr; Chi; CircleDot; CircleMinus; CirclePlus; "
+        + "CircleTimes; ClockwiseContourIntegral; CloseCurlyDoubleQuote; "
+        + "CloseCurlyQuote; Colon; Colone; Congruent; Conint; ContourIntegral; "
+        + "Copf; Coproduct; CounterClockwiseContourIntegral; Cross; Cscr; Cup; "
+        + "CupCap; DD; DDotrahd; DJcy; DScy; DZcy; Dagger; Darr; Dashv; "
+        + "Dcaron; Dcy; Del; Delta; Dfr; DiacriticalAcute; DiacriticalDot; "
+        + "DiacriticalDoubleAcute; DiacriticalGrave; DiacriticalTilde; "
+        + "Diamond; DifferentialD; Dopf; Dot; DotDot; DotEqual; "
+        + "DoubleContourIntegral; DoubleDot; DoubleDownArrow; DoubleLeftArrow; "
+        + "DoubleLeftRightArrow; DoubleLeftTee; DoubleLongLeftArrow; "
+        + "DoubleLongLeftRightArrow; DoubleLongRightArrow; DoubleRightArrow; "
+        + "DoubleRightTee; DoubleUpArrow; DoubleUpDownArrow; "
+        + "DoubleVerticalBar; DownArrow; DownArrowBar; DownArrowUpArrow; "
+        + "DownBreve; DownLeftRightVector; DownLeftTeeVector; DownLeftVector; "
+        + "DownLeftVectorBar; DownRightTeeVector; DownRightVector; "
+        + "DownRightVectorBar; DownTee; DownTeeArrow; Downarrow; Dscr; Dstrok; "
+        + "ENG; ETH ETH; Eacute Eacute; Ecaron; Ecirc Ecirc; Ecy; Edot; Efr; "
+        + "Egrave Egrave; Element; Emacr; EmptySmallSquare; "
+        + "EmptyVerySmallSquare; Eogon; Eopf; Epsilon; Equal; EqualTilde; "
+        + "Equilibrium; Escr; Esim; Eta; Euml Euml; Exists; ExponentialE; Fcy; "
+        + "Ffr; FilledSmallSquare; FilledVerySmallSquare; Fopf; ForAll; "
+        + "Fouriertrf; Fscr; GJcy; GT GT; Gamma; Gammad; Gbreve; Gcedil; "
+        + "Gcirc; Gcy; Gdot; Gfr; Gg; Gopf; GreaterEqual; GreaterEqualLess; "
+        + "GreaterFullEqual; GreaterGreater; GreaterLess; GreaterSlantEqual; "
+        + "GreaterTilde; Gscr; Gt; HARDcy; Hacek; Hat; Hcirc; Hfr; "
+        + "HilbertSpace; Hopf; HorizontalLine; Hscr; Hstrok; HumpDownHump; "
+        + "HumpEqual; IEcy; IJlig; IOcy; Iacute Iacute; Icirc Icirc; Icy; "
+        + "Idot; Ifr; Igrave Igrave; Im; Imacr; ImaginaryI; Implies; Int; "
+        + "Integral; Intersection; InvisibleComma; InvisibleTimes; Iogon; "
+        + "Iopf; Iota; Iscr; Itilde; Iukcy; Iuml Iuml; Jcirc; Jcy; Jfr; Jopf; "
+        + "Jscr; Jsercy; Jukcy; KHcy; KJcy; Kappa; Kcedil; Kcy; Kfr; Kopf; "
+        + "Kscr; LJcy; LT LT; Lacute; Lambda; Lang; Laplacetrf; Larr; Lcaron; "
+        + "Lcedil; Lcy; LeftAngleBracket; LeftArrow; LeftArrowBar; "
+        + "LeftArrowRightArrow; LeftCeiling; LeftDoubleBracket; "
+        + "LeftDownTeeVector; LeftDownVector; LeftDownVectorBar; LeftFloor; "
+        + "LeftRightArrow; LeftRightVector; LeftTee; LeftTeeArrow; "
+        + "LeftTeeVector; LeftTriangle; LeftTriangleBar; LeftTriangleEqual; "
+        + "LeftUpDownVector; LeftUpTeeVector; LeftUpVector; LeftUpVectorBar; "
+        + "LeftVector; LeftVectorBar; Leftarrow; Leftrightarrow; "
+        + "LessEqualGreater; LessFullEqual; LessGreater; LessLess; "
+        + "LessSlantEqual; LessTilde; Lfr; Ll; Lleftarrow; Lmidot; "
+        + "LongLeftArrow; LongLeftRightArrow; LongRightArrow; Longleftarrow; "
+        + "Longleftrightarrow; Longrightarrow; Lopf; LowerLeftArrow; "
+        + "LowerRightArrow; Lscr; Lsh; Lstrok; Lt; Map; Mcy; MediumSpace; "
+        + "Mellintrf; Mfr; MinusPlus; Mopf; Mscr; Mu; NJcy; Nacute; Ncaron; "
+        + "Ncedil; Ncy; NegativeMediumSpace; NegativeThickSpace; "
+        + "NegativeThinSpace; NegativeVeryThinSpace; NestedGreaterGreater; "
+        + "NestedLessLess; NewLine; Nfr; NoBreak; NonBreakingSpace; Nopf; Not; "
+        + "NotCongruent; NotCupCap; NotDoubleVerticalBar; NotElement; "
+        + "NotEqual; NotEqualTilde; NotExists; NotGreater; NotGreaterEqual; "
+        + "NotGreaterFullEqual; NotGreaterGreater; NotGreaterLess; "
+        + "NotGreaterSlantEqual; NotGreaterTilde; NotHumpDownHump; "
+        + "NotHumpEqual; NotLeftTriangle; NotLeftTriangleBar; "
+        + "NotLeftTriangleEqual; NotLess; NotLessEqual; NotLessGreater; "
+        + "NotLessLess; NotLessSlantEqual; NotLessTilde; "
+        + "NotNestedGreaterGreater; NotNestedLessLess; NotPrecedes; "
+        + "NotPrecedesEqual; NotPrecedesSlantEqual; NotReverseElement; "
+        + "NotRightTriangle; NotRightTriangleBar; NotRightTriangleEqual; "
+        + "NotSquareSubset; NotSquareSubsetEqual; NotSquareSuperset; "
+        + "NotSquareSupersetEqual; NotSubset; NotSubsetEqual; NotSucceeds; "
+        + "NotSucceedsEqual; NotSucceedsSlantEqual; NotSucceedsTilde; "
+        + "NotSuperset; NotSupersetEqual; NotTilde; NotTildeEqual; "
+        + "NotTildeFullEqual; NotTildeTilde; NotVerticalBar; Nscr; Ntilde "
+        + "Ntilde; Nu; OElig; Oacute Oacute; Ocirc Ocirc; Ocy; Odblac; Ofr; "
+        + "Ograve Ograve; Omacr; Omega; Omicron; Oopf; OpenCurlyDoubleQuote; "
+        + "OpenCurlyQuote; Or; Oscr; Oslash Oslash; Otilde Otilde; Otimes; "
+        + "Ouml Ouml; OverBar; OverBrace; OverBracket; OverParenthesis; "
+        + "PartialD; Pcy; Pfr; Phi; Pi; PlusMinus; Poincareplane; Popf; Pr; "
+        + "Precedes; PrecedesEqual; PrecedesSlantEqual; PrecedesTilde; Prime; "
+        + "Product; Proportion; Proportional; Pscr; Psi; QUOT QUOT; Qfr; Qopf; "
+        + "Qscr; RBarr; REG REG; Racute; Rang; Rarr; Rarrtl; Rcaron; Rcedil; "
+        + "Rcy; Re; ReverseElement; ReverseEquilibrium; ReverseUpEquilibrium; "
+        + "Rfr; Rho; RightAngleBracket; RightArrow; RightArrowBar; "
+        + "RightArrowLeftArrow; RightCeiling; RightDoubleBracket; "
+        + "RightDownTeeVector; RightDownVector; RightDownVectorBar; "
+        + "RightFloor; RightTee; RightTeeArrow; RightTeeVector; RightTriangle; "
+        + "RightTriangleBar; RightTriangleEqual; RightUpDownVector; "
+        + "RightUpTeeVector; RightUpVector; RightUpVectorBar; RightVector; "
+        + "RightVectorBar; Rightarrow; Ropf; RoundImplies; Rrightarrow; Rscr; "
+        + "Rsh; RuleDelayed; SHCHcy; SHcy; SOFTcy; Sacute; Sc; Scaron; Scedil; "
+        + "Scirc; Scy; Sfr; ShortDownArrow; ShortLeftArrow; ShortRightArrow; "
+        + "ShortUpArrow; Sigma; SmallCircle; Sopf; Sqrt; Square; "
+        + "SquareIntersection; SquareSubset; SquareSubsetEqual; "
+        + "SquareSuperset; SquareSupersetEqual; SquareUnion; Sscr; Star; Sub; "
+        + "Subset; SubsetEqual; Succeeds; SucceedsEqual; SucceedsSlantEqual; "
+        + "SucceedsTilde; SuchThat; Sum; Sup; Superset; SupersetEqual; Supset; "
+        + "THORN THORN; TRADE; TSHcy; TScy; Tab; Tau; Tcaron; Tcedil; Tcy; "
+        + "Tfr; Therefore; Theta; ThickSpace; ThinSpace; Tilde; TildeEqual; "
+        + "TildeFullEqual; TildeTilde; Topf; TripleDot; Tscr; Tstrok; Uacute "
+        + "Uacute; Uarr; Uarrocir; Ubrcy; Ubreve; Ucirc Ucirc; Ucy; Udblac; "
+        + "Ufr; Ugrave Ugrave; Umacr; UnderBar; UnderBrace; UnderBracket; "
+        + "UnderParenthesis; Union; UnionPlus; Uogon; Uopf; UpArrow; "
+        + "UpArrowBar; UpArrowDownArrow; UpDownArrow; UpEquilibrium; UpTee; "
+        + "UpTeeArrow; Uparrow; Updownarrow; UpperLeftArrow; UpperRightArrow; "
+        + "Upsi; Upsilon; Uring; Uscr; Utilde; Uuml Uuml; VDash; Vbar; Vcy; "
+        + "Vdash; Vdashl; Vee; Verbar; Vert; VerticalBar; VerticalLine; "
+        + "VerticalSeparator; VerticalTilde; VeryThinSpace; Vfr; Vopf; Vscr; "
+        + "Vvdash; Wcirc; Wedge; Wfr; Wopf; Wscr; Xfr; Xi; Xopf; Xscr; YAcy; "
+        + "YIcy; YUcy; Yacute Yacute; Ycirc; Ycy; Yfr; Yopf; Yscr; Yuml; ZHcy; "
+        + "Zacute; Zcaron; Zcy; Zdot; ZeroWidthSpace; Zeta; Zfr; Zopf; Zscr; "
+        + "aacute aacute; abreve; ac; acE; acd; acirc acirc; acute acute; acy; "
+        + "aelig aelig; af; afr; agrave agrave; alefsym; aleph; alpha; amacr; "
+        + "amalg; amp amp; and; andand; andd; andslope; andv; ang; ange; "
+        + "angle; angmsd; angmsdaa; angmsdab; angmsdac; angmsdad; angmsdae; "
+        + "angmsdaf; angmsdag; angmsdah; angrt; angrtvb; angrtvbd; angsph; "
+        + "angst; angzarr; aogon; aopf; ap; apE; apacir; ape; apid; apos; "
+        + "approx; approxeq; aring aring; ascr; ast; asymp; asympeq; atilde "
+        + "atilde; auml auml; awconint; awint; bNot; backcong; backepsilon; "
+        + "backprime; backsim; backsimeq; barvee; barwed; barwedge; bbrk; "
+        + "bbrktbrk; bcong; bcy; bdquo; becaus; because; bemptyv; bepsi; "
+        + "bernou; beta; beth; between; bfr; bigcap; bigcirc; bigcup; bigodot; "
+        + "bigoplus; bigotimes; bigsqcup; bigstar; bigtriangledown; "
+        + "bigtriangleup; biguplus; bigvee; bigwedge; bkarow; blacklozenge; "
+        + "blacksquare; blacktriangle; blacktriangledown; blacktriangleleft; "
+        + "blacktriangleright; blank; blk12; blk14; blk34; block; bne; "
+        + "bnequiv; bnot; bopf; bot; bottom; bowtie; boxDL; boxDR; boxDl; "
+        + "boxDr; boxH; boxHD; boxHU; boxHd; boxHu; boxUL; boxUR; boxUl; "
+        + "boxUr; boxV; boxVH; boxVL; boxVR; boxVh; boxVl; boxVr; boxbox; "
+        + "boxdL; boxdR; boxdl; boxdr; boxh; boxhD; boxhU; boxhd; boxhu; "
+        + "boxminus; boxplus; boxtimes; boxuL; boxuR; boxul; boxur; boxv; "
+        + "boxvH; boxvL; boxvR; boxvh; boxvl; boxvr; bprime; breve; brvbar "
+        + "brvbar; bscr; bsemi; bsim; bsime; bsol; bsolb; bsolhsub; bull; "
+        + "bullet; bump; bumpE; bumpe; bumpeq; cacute; cap; capand; capbrcup; "
+        + "capcap; capcup; capdot; caps; caret; caron; ccaps; ccaron; ccedil "
+        + "ccedil; ccirc; ccups; ccupssm; cdot; cedil cedil; cemptyv; cent "
+        + "cent; centerdot; cfr; chcy; check; checkmark; chi; cir; cirE; circ; "
+        + "circeq; circlearrowleft; circlearrowright; circledR; circledS; "
+        + "circledast; circledcirc; circleddash; cire; cirfnint; cirmid; "
+        + "cirscir; clubs; clubsuit; colon; colone; coloneq; comma; commat; "
+        + "comp; compfn; complement; complexes; cong; congdot; conint; copf; "
+        + "coprod; copy copy; copysr; crarr; cross; cscr; csub; csube; csup; "
+        + "csupe; ctdot; cudarrl; cudarrr; cuepr; cuesc; cularr; cularrp; cup; "
+        + "cupbrcap; cupcap; cupcup; cupdot; cupor; cups; curarr; curarrm; "
+        + "curlyeqprec; curlyeqsucc; curlyvee; curlywedge; curren curren; "
+        + "curvearrowleft; curvearrowright; cuvee; cuwed; cwconint; cwint; "
+        + "cylcty; dArr; dHar; dagger; daleth; darr; dash; dashv; dbkarow; "
+        + "dblac; dcaron; dcy; dd; ddagger; ddarr; ddotseq; deg deg; delta; "
+        + "demptyv; dfisht; dfr; dharl; dharr; diam; diamond; diamondsuit; "
+        + "diams; die; digamma; disin; div; divide divide; divideontimes; "
+        + "divonx; djcy; dlcorn; dlcrop; dollar; dopf; dot; doteq; doteqdot; "
+        + "dotminus; dotplus; dotsquare; doublebarwedge; downarrow; "
+        + "downdownarrows; downharpoonleft; downharpoonright; drbkarow; "
+        + "drcorn; drcrop; dscr; dscy; dsol; dstrok; dtdot; dtri; dtrif; "
+        + "duarr; duhar; dwangle; dzcy; dzigrarr; eDDot; eDot; eacute eacute; "
+        + "easter; ecaron; ecir; ecirc ecirc; ecolon; ecy; edot; ee; efDot; "
+        + "efr; eg; egrave egrave; egs; egsdot; el; elinters; ell; els; "
+        + "elsdot; emacr; empty; emptyset; emptyv; emsp13; emsp14; emsp; eng; "
+        + "ensp; eogon; eopf; epar; eparsl; eplus; epsi; epsilon; epsiv; "
+        + "eqcirc; eqcolon; eqsim; eqslantgtr; eqslantless; equals; equest; "
+        + "equiv; equivDD; eqvparsl; erDot; erarr; escr; esdot; esim; eta; eth "
+        + "eth; euml euml; euro; excl; exist; expectation; exponentiale; "
+        + "fallingdotseq; fcy; female; ffilig; fflig; ffllig; ffr; filig; "
+        + "fjlig; flat; fllig; fltns; fnof; fopf; forall; fork; forkv; "
+        + "fpartint; frac12 frac12; frac13; frac14 frac14; frac15; frac16; "
+        + "frac18; frac23; frac25; frac34 frac34; frac35; frac38; frac45; "
+        + "frac56; frac58; frac78; frasl; frown; fscr; gE; gEl; gacute; gamma; "
+        + "gammad; gap; gbreve; gcirc; gcy; gdot; ge; gel; geq; geqq; "
+        + "geqslant; ges; gescc; gesdot; gesdoto; gesdotol; gesl; gesles; gfr; "
+        + "gg; ggg; gimel; gjcy; gl; glE; gla; glj; gnE; gnap; gnapprox; gne; "
+        + "gneq; gneqq; gnsim; gopf; grave; gscr; gsim; gsime; gsiml; gt gt; "
+        + "gtcc; gtcir; gtdot; gtlPar; gtquest; gtrapprox; gtrarr; gtrdot; "
+        + "gtreqless; gtreqqless; gtrless; gtrsim; gvertneqq; gvnE; hArr; "
+        + "hairsp; half; hamilt; hardcy; harr; harrcir; harrw; hbar; hcirc; "
+        + "hearts; heartsuit; hellip; hercon; hfr; hksearow; hkswarow; hoarr; "
+        + "homtht; hookleftarrow; hookrightarrow; hopf; horbar; hscr; hslash; "
+        + "hstrok; hybull; hyphen; iacute iacute; ic; icirc icirc; icy; iecy; "
+        + "iexcl iexcl; iff; ifr; igrave igrave; ii; iiiint; iiint; iinfin; "
+        + "iiota; ijlig; imacr; image; imagline; imagpart; imath; imof; imped; "
+        + "in; incare; infin; infintie; inodot; int; intcal; integers; "
+        + "intercal; intlarhk; intprod; iocy; iogon; iopf; iota; iprod; iquest "
+        + "iquest; iscr; isin; isinE; isindot; isins; isinsv; isinv; it; "
+        + "itilde; iukcy; iuml iuml; jcirc; jcy; jfr; jmath; jopf; jscr; "
+        + "jsercy; jukcy; kappa; kappav; kcedil; kcy; kfr; kgreen; khcy; kjcy; "
+        + "kopf; kscr; lAarr; lArr; lAtail; lBarr; lE; lEg; lHar; lacute; "
+        + "laemptyv; lagran; lambda; lang; langd; langle; lap; laquo laquo; "
+        + "larr; larrb; larrbfs; larrfs; larrhk; larrlp; larrpl; larrsim; "
+        + "larrtl; lat; latail; late; lates; lbarr; lbbrk; lbrace; lbrack; "
+        + "lbrke; lbrksld; lbrkslu; lcaron; lcedil; lceil; lcub; lcy; ldca; "
+        + "ldquo; ldquor; ldrdhar; ldrushar; ldsh; le; leftarrow; "
+        + "leftarrowtail; leftharpoondown; leftharpoonup; leftleftarrows; "
+        + "leftrightarrow; leftrightarrows; leftrightharpoons; "
+        + "leftrightsquigarrow; leftthreetimes; leg; leq; leqq; leqslant; les; "
+        + "lescc; lesdot; lesdoto; lesdotor; lesg; lesges; lessapprox; "
+        + "lessdot; lesseqgtr; lesseqqgtr; lessgtr; lesssim; lfisht; lfloor; "
+        + "lfr; lg; lgE; lhard; lharu; lharul; lhblk; ljcy; ll; llarr; "
+        + "llcorner; llhard; lltri; lmidot; lmoust; lmoustache; lnE; lnap; "
+        + "lnapprox; lne; lneq; lneqq; lnsim; loang; loarr; lobrk; "
+        + "longleftarrow; longleftrightarrow; longmapsto; longrightarrow; "
+        + "looparrowleft; looparrowright; lopar; lopf; loplus; lotimes; "
+        + "lowast; lowbar; loz; lozenge; lozf; lpar; lparlt; lrarr; lrcorner; "
+        + "lrhar; lrhard; lrm; lrtri; lsaquo; lscr; lsh; lsim; lsime; lsimg; "
+        + "lsqb; lsquo; lsquor; lstrok; lt lt; ltcc; ltcir; ltdot; lthree; "
+        + "ltimes; ltlarr; ltquest; ltrPar; ltri; ltrie; ltrif; lurdshar; "
+        + "luruhar; lvertneqq; lvnE; mDDot; macr macr; male; malt; maltese; "
+        + "map; mapsto; mapstodown; mapstoleft; mapstoup; marker; mcomma; mcy; "
+        + "mdash; measuredangle; mfr; mho; micro micro; mid; midast; midcir; "
+        + "middot middot; minus; minusb; minusd; minusdu; mlcp; mldr; mnplus; "
+        + "models; mopf; mp; mscr; mstpos; mu; multimap; mumap; nGg; nGt; "
+        + "nGtv; nLeftarrow; nLeftrightarrow; nLl; nLt; nLtv; nRightarrow; "
+        + "nVDash; nVdash; nabla; nacute; nang; nap; napE; napid; napos; "
+        + "napprox; natur; natural; naturals; nbsp nbsp; nbump; nbumpe; ncap; "
+        + "ncaron; ncedil; ncong; ncongdot; ncup; ncy; ndash; ne; neArr; "
+        + "nearhk; nearr; nearrow; nedot; nequiv; nesear; nesim; nexist; "
+        + "nexists; nfr; ngE; nge; ngeq; ngeqq; ngeqslant; nges; ngsim; ngt; "
+        + "ngtr; nhArr; nharr; nhpar; ni; nis; nisd; niv; njcy; nlArr; nlE; "
+        + "nlarr; nldr; nle; nleftarrow; nleftrightarrow; nleq; nleqq; "
+        + "nleqslant; nles; nless; nlsim; nlt; nltri; nltrie; nmid; nopf; not "
+        + "not; notin; notinE; notindot; notinva; notinvb; notinvc; notni; "
+        + "notniva; notnivb; notnivc; npar; nparallel; nparsl; npart; npolint; "
+        + "npr; nprcue; npre; nprec; npreceq; nrArr; nrarr; nrarrc; nrarrw; "
+        + "nrightarrow; nrtri; nrtrie; nsc; nsccue; nsce; nscr; nshortmid; "
+        + "nshortparallel; nsim; nsime; nsimeq; nsmid; nspar; nsqsube; "
+        + "nsqsupe; nsub; nsubE; nsube; nsubset; nsubseteq; nsubseteqq; nsucc; "
+        + "nsucceq; nsup; nsupE; nsupe; nsupset; nsupseteq; nsupseteqq; ntgl; "
+        + "ntilde ntilde; ntlg; ntriangleleft; ntrianglelefteq; "
+        + "ntriangleright; ntrianglerighteq; nu; num; numero; numsp; nvDash; "
+        + "nvHarr; nvap; nvdash; nvge; nvgt; nvinfin; nvlArr; nvle; nvlt; "
+        + "nvltrie; nvrArr; nvrtrie; nvsim; nwArr; nwarhk; nwarr; nwarrow; "
+        + "nwnear; oS; oacute oacute; oast; ocir; ocirc ocirc; ocy; odash; "
+        + "odblac; odiv; odot; odsold; oelig; ofcir; ofr; ogon; ograve ograve; "
+        + "ogt; ohbar; ohm; oint; olarr; olcir; olcross; oline; olt; omacr; "
+        + "omega; omicron; omid; ominus; oopf; opar; operp; oplus; or; orarr; "
+        + "ord; order; orderof; ordf ordf; ordm ordm; origof; oror; orslope; "
+        + "orv; oscr; oslash oslash; osol; otilde otilde; otimes; otimesas; "
+        + "ouml ouml; ovbar; par; para para; parallel; parsim; parsl; part; "
+        + "pcy; percnt; period; permil; perp; pertenk; pfr; phi; phiv; phmmat; "
+        + "phone; pi; pitchfork; piv; planck; planckh; plankv; plus; plusacir; "
+        + "plusb; pluscir; plusdo; plusdu; pluse; plusmn plusmn; plussim; "
+        + "plustwo; pm; pointint; popf; pound pound; pr; prE; prap; prcue; "
+        + "pre; prec; precapprox; preccurlyeq; preceq; precnapprox; precneqq; "
+        + "precnsim; precsim; prime; primes; prnE; prnap; prnsim; prod; "
+        + "profalar; profline; profsurf; prop; propto; prsim; prurel; pscr; "
+        + "psi; puncsp; qfr; qint; qopf; qprime; qscr; quaternions; quatint; "
+        + "quest; questeq; quot quot; rAarr; rArr; rAtail; rBarr; rHar; race; "
+        + "racute; radic; raemptyv; rang; rangd; range; rangle; raquo raquo; "
+        + "rarr; rarrap; rarrb; rarrbfs; rarrc; rarrfs; rarrhk; rarrlp; "
+        + "rarrpl; rarrsim; rarrtl; rarrw; ratail; ratio; rationals; rbarr; "
+        + "rbbrk; rbrace; rbrack; rbrke; rbrksld; rbrkslu; rcaron; rcedil; "
+        + "rceil; rcub; rcy; rdca; rdldhar; rdquo; rdquor; rdsh; real; "
+        + "realine; realpart; reals; rect; reg reg; rfisht; rfloor; rfr; "
+        + "rhard; rharu; rharul; rho; rhov; rightarrow; rightarrowtail; "
+        + "rightharpoondown; rightharpoonup; rightleftarrows; "
+        + "rightleftharpoons; rightrightarrows; rightsquigarrow; "
+        + "rightthreetimes; ring; risingdotseq; rlarr; rlhar; rlm; rmoust; "
+        + "rmoustache; rnmid; roang; roarr; robrk; ropar; ropf; roplus; "
+        + "rotimes; rpar; rpargt; rppolint; rrarr; rsaquo; rscr; rsh; rsqb; "
+        + "rsquo; rsquor; rthree; rtimes; rtri; rtrie; rtrif; rtriltri; "
+        + "ruluhar; rx; sacute; sbquo; sc; scE; scap; scaron; sccue; sce; "
+        + "scedil; scirc; scnE; scnap; scnsim; scpolint; scsim; scy; sdot; "
+        + "sdotb; sdote; seArr; searhk; searr; searrow; sect sect; semi; "
+        + "seswar; setminus; setmn; sext; sfr; sfrown; sharp; shchcy; shcy; "
+        + "shortmid; shortparallel; shy shy; sigma; sigmaf; sigmav; sim; "
+        + "simdot; sime; simeq; simg; simgE; siml; simlE; simne; simplus; "
+        + "simrarr; slarr; smallsetminus; smashp; smeparsl; smid; smile; smt; "
+        + "smte; smtes; softcy; sol; solb; solbar; sopf; spades; spadesuit; "
+        + "spar; sqcap; sqcaps; sqcup; sqcups; sqsub; sqsube; sqsubset; "
+        + "sqsubseteq; sqsup; sqsupe; sqsupset; sqsupseteq; squ; square; "
+        + "squarf; squf; srarr; sscr; ssetmn; ssmile; sstarf; star; starf; "
+        + "straightepsilon; straightphi; strns; sub; subE; subdot; sube; "
+        + "subedot; submult; subnE; subne; subplus; subrarr; subset; subseteq; "
+        + "subseteqq; subsetneq; subsetneqq; subsim; subsub; subsup; succ; "
+        + "succapprox; succcurlyeq; succeq; succnapprox; succneqq; succnsim; "
+        + "succsim; sum; sung; sup1 sup1; sup2 sup2; sup3 sup3; sup; supE; "
+        + "supdot; supdsub; supe; supedot; suphsol; suphsub; suplarr; supmult; "
+        + "supnE; supne; supplus; supset; supseteq; supseteqq; supsetneq; "
+        + "supsetneqq; supsim; supsub; supsup; swArr; swarhk; swarr; swarrow; "
+        + "swnwar; szlig szlig; target; tau; tbrk; tcaron; tcedil; tcy; tdot; "
+        + "telrec; tfr; there4; therefore; theta; thetasym; thetav; "
+        + "thickapprox; thicksim; thinsp; thkap; thksim; thorn thorn; tilde; "
+        + "times times; timesb; timesbar; timesd; tint; toea; top; topbot; "
+        + "topcir; topf; topfork; tosa; tprime; trade; triangle; triangledown; "
+        + "triangleleft; trianglelefteq; triangleq; triangleright; "
+        + "trianglerighteq; tridot; trie; triminus; triplus; trisb; tritime; "
+        + "trpezium; tscr; tscy; tshcy; tstrok; twixt; twoheadleftarrow; "
+        + "twoheadrightarrow; uArr; uHar; uacute uacute; uarr; ubrcy; ubreve; "
+        + "ucirc ucirc; ucy; udarr; udblac; udhar; ufisht; ufr; ugrave ugrave; "
+        + "uharl; uharr; uhblk; ulcorn; ulcorner; ulcrop; ultri; umacr; uml "
+        + "uml; uogon; uopf; uparrow; updownarrow; upharpoonleft; "
+        + "upharpoonright; uplus; upsi; upsih; upsilon; upuparrows; urcorn; "
+        + "urcorner; urcrop; uring; urtri; uscr; utdot; utilde; utri; utrif; "
+        + "uuarr; uuml uuml; uwangle; vArr; vBar; vBarv; vDash; vangrt; "
+        + "varepsilon; varkappa; varnothing; varphi; varpi; varpropto; varr; "
+        + "varrho; varsigma; varsubsetneq; varsubsetneqq; varsupsetneq; "
+        + "varsupsetneqq; vartheta; vartriangleleft; vartriangleright; vcy; "
+        + "vdash; vee; veebar; veeeq; vellip; verbar; vert; vfr; vltri; vnsub; "
+        + "vnsup; vopf; vprop; vrtri; vscr; vsubnE; vsubne; vsupnE; vsupne; "
+        + "vzigzag; wcirc; wedbar; wedge; wedgeq; weierp; wfr; wopf; wp; wr; "
+        + "wreath; wscr; xcap; xcirc; xcup; xdtri; xfr; xhArr; xharr; xi; "
+        + "xlArr; xlarr; xmap; xnis; xodot; xopf; xoplus; xotime; xrArr; "
+        + "xrarr; xscr; xsqcup; xuplus; xutri; xvee; xwedge; yacute yacute; "
+        + "yacy; ycirc; ycy; yen yen; yfr; yicy; yopf; yscr; yucy; yuml yuml; "
+        + "zacute; zcaron; zcy; zdot; zeetrf; zeta; zfr; zhcy; zigrarr; zopf; "
+        + "zscr; zwj; zwnj; ";
+
+    /**
+     * Values of all references in the same order as names. Each value is
+     * preceded by its length.
+     */
+    private static final String PACKED_VALUES = ""
+        + "1\u00c61\u00c61&1&1\u00c11\u00c11\u01021\u00c21\u00c21\u04102\ud835"
+        + "\udd041\u00c01\u00c01\u03911\u01001\u2a531\u01042\ud835\udd381\u2061"
+        + "1\u00c51\u00c52\ud835\udc9c1\u22541\u00c31\u00c31\u00c41\u00c41"
+        + "\u22161\u2ae71\u23061\u04111\u22351\u212c1\u03922\ud835\udd052\ud835"
+        + "\udd391\u02d81\u212c1\u224e1\u04271\u00a91\u00a91\u01061\u22d21"
+        + "\u21451\u212d1\u010c1\u00c71\u00c71\u01081\u22301\u010a1\u00b81"
+        + "\u00b71\u212d1\u03a71\u22991\u22961\u22951\u22971\u22321\u201d1"
+        + "\u20191\u22371\u2a741\u22611\u222f1\u222e1\u21021\u22101\u22331"
+        + "\u2a2f2\ud835\udc9e1\u22d31\u224d1\u21451\u29111\u04021\u04051\u040f"
+        + "1\u20211\u21a11\u2ae41\u010e1\u04141\u22071\u03942\ud835\udd071"
+        + "\u00b41\u02d91\u02dd1`1\u02dc1\u22c41\u21462\ud835\udd3b1\u00a81"
+        + "\u20dc1\u22501\u222f1\u00a81\u21d31\u21d01\u21d41\u2ae41\u27f81"
+        + "\u27fa1\u27f91\u21d21\u22a81\u21d11\u21d51\u22251\u21931\u29131"
+        + "\u21f51\u03111\u29501\u295e1\u21bd1\u29561\u295f1\u21c11\u29571"
+        + "\u22a41\u21a71\u21d32\ud835\udc9f1\u01101\u014a1\u00d01\u00d01\u00c9"
+        + "1\u00c91\u011a1\u00ca1\u00ca1\u042d1\u01162\ud835\udd081\u00c81"
+        + "\u00c81\u22081\u01121\u25fb1\u25ab1\u01182\ud835\udd3c1\u03951\u2a75"
+        + "1\u22421\u21cc1\u21301\u2a731\u03971\u00cb1\u00cb1\u22031\u21471"
+        + "\u04242\ud835\udd091\u25fc1\u25aa2\ud835\udd3d1\u22001\u21311\u21311"
+        + "\u04031>1>1\u03931\u03dc1\u011e1\u01221\u011c1\u04131\u01202\ud835"
+        + "\udd0a1\u22d92\ud835\udd3e1\u22651\u22db1\u22671\u2aa21\u22771\u2a7e"
+        + "1\u22732\ud835\udca21\u226b1\u042a1\u02c71^1\u01241\u210c1\u210b1"
+        + "\u210d1\u25001\u210b1\u01261\u224e1\u224f1\u04151\u01321\u04011"
+        + "\u00cd1\u00cd1\u00ce1\u00ce1\u04181\u01301\u21111\u00cc1\u00cc1"
+        + "\u21111\u012a1\u21481\u21d21\u222c1\u222b1\u22c21\u20631\u20621"
+        + "\u012e2\ud835\udd401\u03991\u21101\u01281\u04061\u00cf1\u00cf1\u0134"
+        + "1\u04192\ud835\udd0d2\ud835\udd412\ud835\udca51\u04081\u04041\u04251"
+        + "\u040c1\u039a1\u01361\u041a2\ud835\udd0e2\ud835\udd422\ud835\udca61"
+        + "\u04091<1<1\u01391\u039b1\u27ea1\u21121\u219e1\u013d1\u013b1\u041b1"
+        + "\u27e81\u21901\u21e41\u21c61\u23081\u27e61\u29611\u21c31\u29591"
+        + "\u230a1\u21941\u294e1\u22a31\u21a41\u295a1\u22b21\u29cf1\u22b41"
+        + "\u29511\u29601\u21bf1\u29581\u21bc1\u29521\u21d01\u21d41\u22da1"
+        + "\u22661\u22761\u2aa11\u2a7d1\u22722\ud835\udd0f1\u22d81\u21da1\u013f"
+        + "1\u27f51\u27f71\u27f61\u27f81\u27fa1\u27f92\ud835\udd431\u21991"
+        + "\u21981\u21121\u21b01\u01411\u226a1\u29051\u041c1\u205f1\u21332"
+        + "\ud835\udd101\u22132\ud835\udd441\u21331\u039c1\u040a1\u01431\u01471"
+        + "\u01451\u041d1\u200b1\u200b1\u200b1\u200b1\u226b1\u226a1\n2\ud835"
+        + "\udd111\u20601\u00a01\u21151\u2aec1\u22621\u226d1\u22261\u22091"
+        + "\u22602\u2242\u03381\u22041\u226f1\u22712\u2267\u03382\u226b\u03381"
+        + "\u22792\u2a7e\u03381\u22752\u224e\u03382\u224f\u03381\u22ea2\u29cf"
+        + "\u03381\u22ec1\u226e1\u22701\u22782\u226a\u03382\u2a7d\u03381\u22742"
+        + "\u2aa2\u03382\u2aa1\u03381\u22802\u2aaf\u03381\u22e01\u220c1\u22eb2"
+        + "\u29d0\u03381\u22ed2\u228f\u03381\u22e22\u2290\u03381\u22e32\u2282"
+        + "\u20d21\u22881\u22812\u2ab0\u03381\u22e12\u227f\u03382\u2283\u20d21"
+        + "\u22891\u22411\u22441\u22471\u22491\u22242\ud835\udca91\u00d11\u00d1"
+        + "1\u039d1\u01521\u00d31\u00d31\u00d41\u00d41\u041e1\u01502\ud835"
+        + "\udd121\u00d21\u00d21\u014c1\u03a91\u039f2\ud835\udd461\u201c1\u2018"
+        + "1\u2a542\ud835\udcaa1\u00d81\u00d81\u00d51\u00d51\u2a371\u00d61"
+        + "\u00d61\u203e1\u23de1\u23b41\u23dc1\u22021\u041f2\ud835\udd131\u03a6"
+        + "1\u03a01\u00b11\u210c1\u21191\u2abb1\u227a1\u2aaf1\u227c1\u227e1"
+        + "\u20331\u220f1\u22371\u221d2\ud835\udcab1\u03a81\"1\"2\ud835\udd141"
+        + "\u211a2\ud835\udcac1\u29101\u00ae1\u00ae1\u01541\u27eb1\u21a01\u2916"
+        + "1\u01581\u01561\u04201\u211c1\u220b1\u21cb1\u296f1\u211c1\u03a11"
+        + "\u27e91\u21921\u21e51\u21c41\u23091\u27e71\u295d1\u21c21\u29551"
+        + "\u230b1\u22a21\u21a61\u295b1\u22b31\u29d01\u22b51\u294f1\u295c1"
+        + "\u21be1\u29541\u21c01\u29531\u21d21\u211d1\u29701\u21db1\u211b1"
+        + "\u21b11\u29f41\u04291\u04281\u042c1\u015a1\u2abc1\u01601\u015e1"
+        + "\u015c1\u04212\ud835\udd161\u21931\u21901\u21921\u21911\u03a31\u2218"
+        + "2\ud835\udd4a1\u221a1\u25a11\u22931\u228f1\u22911\u22901\u22921"
+        + "\u22942\ud835\udcae1\u22c61\u22d01\u22d01\u22861\u227b1\u2ab01\u227d"
+        + "1\u227f1\u220b1\u22111\u22d11\u22831\u22871\u22d11\u00de1\u00de1"
+        + "\u21221\u040b1\u04261\u00091\u03a41\u01641\u01621\u04222\ud835\udd17"
+        + "1\u22341\u03982\u205f\u200a1\u20091\u223c1\u22431\u22451\u22482"
+        + "\ud835\udd4b1\u20db2\ud835\udcaf1\u01661\u00da1\u00da1\u219f1\u29491"
+        + "\u040e1\u016c1\u00db1\u00db1\u04231\u01702\ud835\udd181\u00d91\u00d9"
+        + "1\u016a1_1\u23df1\u23b51\u23dd1\u22c31\u228e1\u01722\ud835\udd4c1"
+        + "\u21911\u29121\u21c51\u21951\u296e1\u22a51\u21a51\u21d11\u21d51"
+        + "\u21961\u21971\u03d21\u03a51\u016e2\ud835\udcb01\u01681\u00dc1\u00dc"
+        + "1\u22ab1\u2aeb1\u04121\u22a91\u2ae61\u22c11\u20161\u20161\u22231|1"
+        + "\u27581\u22401\u200a2\ud835\udd192\ud835\udd4d2\ud835\udcb11\u22aa1"
+        + "\u01741\u22c02\ud835\udd1a2\ud835\udd4e2\ud835\udcb22\ud835\udd1b1"
+        + "\u039e2\ud835\udd4f2\ud835\udcb31\u042f1\u04071\u042e1\u00dd1\u00dd1"
+        + "\u01761\u042b2\ud835\udd1c2\ud835\udd502\ud835\udcb41\u01781\u04161"
+        + "\u01791\u017d1\u04171\u017b1\u200b1\u03961\u21281\u21242\ud835\udcb5"
+        + "1\u00e11\u00e11\u01031\u223e2\u223e\u03331\u223f1\u00e21\u00e21"
+        + "\u00b41\u00b41\u04301\u00e61\u00e61\u20612\ud835\udd1e1\u00e01\u00e0"
+        + "1\u21351\u21351\u03b11\u01011\u2a3f1&1&1\u22271\u2a551\u2a5c1\u2a581"
+        + "\u2a5a1\u22201\u29a41\u22201\u22211\u29a81\u29a91\u29aa1\u29ab1"
+        + "\u29ac1\u29ad1\u29ae1\u29af1\u221f1\u22be1\u299d1\u22221\u00c51"
+        + "\u237c1\u01052\ud835\udd521\u22481\u2a701\u2a6f1\u224a1\u224b1'1"
+        + "\u22481\u224a1\u00e51\u00e52\ud835\udcb61*1\u22481\u224d1\u00e31"
+        + "\u00e31\u00e41\u00e41\u22331\u2a111\u2aed1\u224c1\u03f61\u20351"
+        + "\u223d1\u22cd1\u22bd1\u23051\u23051\u23b51\u23b61\u224c1\u04311"
+        + "\u201e1\u22351\u22351\u29b01\u03f61\u212c1\u03b21\u21361\u226c2"
+        + "\ud835\udd1f1\u22c21\u25ef1\u22c31\u2a001\u2a011\u2a021\u2a061\u2605"
+        + "1\u25bd1\u25b31\u2a041\u22c11\u22c01\u290d1\u29eb1\u25aa1\u25b41"
+        + "\u25be1\u25c21\u25b81\u24231\u25921\u25911\u25931\u25882=\u20e52"
+        + "\u2261\u20e51\u23102\ud835\udd531\u22a51\u22a51\u22c81\u25571\u25541"
+        + "\u25561\u25531\u25501\u25661\u25691\u25641\u25671\u255d1\u255a1"
+        + "\u255c1\u25591\u25511\u256c1\u25631\u25601\u256b1\u25621\u255f1"
+        + "\u29c91\u25551\u25521\u25101\u250c1\u25001\u25651\u25681\u252c1"
+        + "\u25341\u229f1\u229e1\u22a01\u255b1\u25581\u25181\u25141\u25021"
+        + "\u256a1\u25611\u255e1\u253c1\u25241\u251c1\u20351\u02d81\u00a61"
+        + "\u00a62\ud835\udcb71\u204f1\u223d1\u22cd1\\1\u29c51\u27c81\u20221"
+        + "\u20221\u224e1\u2aae1\u224f1\u224f1\u01071\u22291\u2a441\u2a491"
+        + "\u2a4b1\u2a471\u2a402\u2229\ufe001\u20411\u02c71\u2a4d1\u010d1\u00e7"
+        + "1\u00e71\u01091\u2a4c1\u2a501\u010b1\u00b81\u00b81\u29b21\u00a21"
+        + "\u00a21\u00b72\ud835\udd201\u04471\u27131\u27131\u03c71\u25cb1\u29c3"
+        + "1\u02c61\u22571\u21ba1\u21bb1\u00ae1\u24c81\u229b1\u229a1\u229d1"
+        + "\u22571\u2a101\u2aef1\u29c21\u26631\u26631:1\u22541\u22541,1@1\u2201"
+        + "1\u22181\u22011\u21021\u22451\u2a6d1\u222e2\ud835\udd541\u22101"
+        + "\u00a91\u00a91\u21171\u21b51\u27172\ud835\udcb81\u2acf1\u2ad11\u2ad0"
+        + "1\u2ad21\u22ef1\u29381\u29351\u22de1\u22df1\u21b61\u293d1\u222a1"
+        + "\u2a481\u2a461\u2a4a1\u228d1\u2a452\u222a\ufe001\u21b71\u293c1\u22de"
+        + "1\u22df1\u22ce1\u22cf1\u00a41\u00a41\u21b61\u21b71\u22ce1\u22cf1"
+        + "\u22321\u22311\u232d1\u21d31\u29651\u20201\u21381\u21931\u20101"
+        + "\u22a31\u290f1\u02dd1\u010f1\u04341\u21461\u20211\u21ca1\u2a771"
+        + "\u00b01\u00b01\u03b41\u29b11\u297f2\ud835\udd211\u21c31\u21c21\u22c4"
+        + "1\u22c41\u26661\u26661\u00a81\u03dd1\u22f21\u00f71\u00f71\u00f71"
+        + "\u22c71\u22c71\u04521\u231e1\u230d1$2\ud835\udd551\u02d91\u22501"
+        + "\u22511\u22381\u22141\u22a11\u23061\u21931\u21ca1\u21c31\u21c21"
+        + "\u29101\u231f1\u230c2\ud835\udcb91\u04551\u29f61\u01111\u22f11\u25bf"
+        + "1\u25be1\u21f51\u296f1\u29a61\u045f1\u27ff1\u2a771\u22511\u00e91"
+        + "\u00e91\u2a6e1\u011b1\u22561\u00ea1\u00ea1\u22551\u044d1\u01171"
+        + "\u21471\u22522\ud835\udd221\u2a9a1\u00e81\u00e81\u2a961\u2a981\u2a99"
+        + "1\u23e71\u21131\u2a951\u2a971\u01131\u22051\u22051\u22051\u20041"
+        + "\u20051\u20031\u014b1\u20021\u01192\ud835\udd561\u22d51\u29e31\u2a71"
+        + "1\u03b51\u03b51\u03f51\u22561\u22551\u22421\u2a961\u2a951=1\u225f1"
+        + "\u22611\u2a781\u29e51\u22531\u29711\u212f1\u22501\u22421\u03b71"
+        + "\u00f01\u00f01\u00eb1\u00eb1\u20ac1!1\u22031\u21301\u21471\u22521"
+        + "\u04441\u26401\ufb031\ufb001\ufb042\ud835\udd231\ufb012fj1\u266d1"
+        + "\ufb021\u25b11\u01922\ud835\udd571\u22001\u22d41\u2ad91\u2a0d1\u00bd"
+        + "1\u00bd1\u21531\u00bc1\u00bc1\u21551\u21591\u215b1\u21541\u21561"
+        + "\u00be1\u00be1\u21571\u215c1\u21581\u215a1\u215d1\u215e1\u20441"
+        + "\u23222\ud835\udcbb1\u22671\u2a8c1\u01f51\u03b31\u03dd1\u2a861\u011f"
+        + "1\u011d1\u04331\u01211\u22651\u22db1\u22651\u22671\u2a7e1\u2a7e1"
+        + "\u2aa91\u2a801\u2a821\u2a842\u22db\ufe001\u2a942\ud835\udd241\u226b1"
+        + "\u22d91\u21371\u04531\u22771\u2a921\u2aa51\u2aa41\u22691\u2a8a1"
+        + "\u2a8a1\u2a881\u2a881\u22691\u22e72\ud835\udd581`1\u210a1\u22731"
+        + "\u2a8e1\u2a901>1>1\u2aa71\u2a7a1\u22d71\u29951\u2a7c1\u2a861\u29781"
+        + "\u22d71\u22db1\u2a8c1\u22771\u22732\u2269\ufe002\u2269\ufe001\u21d41"
+        + "\u200a1\u00bd1\u210b1\u044a1\u21941\u29481\u21ad1\u210f1\u01251"
+        + "\u26651\u26651\u20261\u22b92\ud835\udd251\u29251\u29261\u21ff1\u223b"
+        + "1\u21a91\u21aa2\ud835\udd591\u20152\ud835\udcbd1\u210f1\u01271\u2043"
+        + "1\u20101\u00ed1\u00ed1\u20631\u00ee1\u00ee1\u04381\u04351\u00a11"
+        + "\u00a11\u21d42\ud835\udd261\u00ec1\u00ec1\u21481\u2a0c1\u222d1\u29dc"
+        + "1\u21291\u01331\u012b1\u21111\u21101\u21111\u01311\u22b71\u01b51"
+        + "\u22081\u21051\u221e1\u29dd1\u01311\u222b1\u22ba1\u21241\u22ba1"
+        + "\u2a171\u2a3c1\u04511\u012f2\ud835\udd5a1\u03b91\u2a3c1\u00bf1\u00bf"
+        + "2\ud835\udcbe1\u22081\u22f91\u22f51\u22f41\u22f31\u22081\u20621"
+        + "\u01291\u04561\u00ef1\u00ef1\u01351\u04392\ud835\udd271\u02372\ud835"
+        + "\udd5b2\ud835\udcbf1\u04581\u04541\u03ba1\u03f01\u01371\u043a2\ud835"
+        + "\udd281\u01381\u04451\u045c2\ud835\udd5c2\ud835\udcc01\u21da1\u21d01"
+        + "\u291b1\u290e1\u22661\u2a8b1\u29621\u013a1\u29b41\u21121\u03bb1"
+        + "\u27e81\u29911\u27e81\u2a851\u00ab1\u00ab1\u21901\u21e41\u291f1"
+        + "\u291d1\u21a91\u21ab1\u29391\u29731\u21a21\u2aab1\u29191\u2aad2"
+        + "\u2aad\ufe001\u290c1\u27721{1[1\u298b1\u298f1\u298d1\u013e1\u013c1"
+        + "\u23081{1\u043b1\u29361\u201c1\u201e1\u29671\u294b1\u21b21\u22641"
+        + "\u21901\u21a21\u21bd1\u21bc1\u21c71\u21941\u21c61\u21cb1\u21ad1"
+        + "\u22cb1\u22da1\u22641\u22661\u2a7d1\u2a7d1\u2aa81\u2a7f1\u2a811"
+        + "\u2a832\u22da\ufe001\u2a931\u2a851\u22d61\u22da1\u2a8b1\u22761\u2272"
+        + "1\u297c1\u230a2\ud835\udd291\u22761\u2a911\u21bd1\u21bc1\u296a1"
+        + "\u25841\u04591\u226a1\u21c71\u231e1\u296b1\u25fa1\u01401\u23b01"
+        + "\u23b01\u22681\u2a891\u2a891\u2a871\u2a871\u22681\u22e61\u27ec1"
+        + "\u21fd1\u27e61\u27f51\u27f71\u27fc1\u27f61\u21ab1\u21ac1\u29852"
+        + "\ud835\udd5d1\u2a2d1\u2a341\u22171_1\u25ca1\u25ca1\u29eb1(1\u29931"
+        + "\u21c61\u231f1\u21cb1\u296d1\u200e1\u22bf1\u20392\ud835\udcc11\u21b0"
+        + "1\u22721\u2a8d1\u2a8f1[1\u20181\u201a1\u01421<1<1\u2aa61\u2a791"
+        + "\u22d61\u22cb1\u22c91\u29761\u2a7b1\u29961\u25c31\u22b41\u25c21"
+        + "\u294a1\u29662\u2268\ufe002\u2268\ufe001\u223a1\u00af1\u00af1\u26421"
+        + "\u27201\u27201\u21a61\u21a61\u21a71\u21a41\u21a51\u25ae1\u2a291"
+        + "\u043c1\u20141\u22212\ud835\udd2a1\u21271\u00b51\u00b51\u22231*1"
+        + "\u2af01\u00b71\u00b71\u22121\u229f1\u22381\u2a2a1\u2adb1\u20261"
+        + "\u22131\u22a72\ud835\udd5e1\u22132\ud835\udcc21\u223e1\u03bc1\u22b81"
+        + "\u22b82\u22d9\u03382\u226b\u20d22\u226b\u03381\u21cd1\u21ce2\u22d8"
+        + "\u03382\u226a\u20d22\u226a\u03381\u21cf1\u22af1\u22ae1\u22071\u01442"
+        + "\u2220\u20d21\u22492\u2a70\u03382\u224b\u03381\u01491\u22491\u266e1"
+        + "\u266e1\u21151\u00a01\u00a02\u224e\u03382\u224f\u03381\u2a431\u01481"
+        + "\u01461\u22472\u2a6d\u03381\u2a421\u043d1\u20131\u22601\u21d71\u2924"
+        + "1\u21971\u21972\u2250\u03381\u22621\u29282\u2242\u03381\u22041\u2204"
+        + "2\ud835\udd2b2\u2267\u03381\u22711\u22712\u2267\u03382\u2a7e\u03382"
+        + "\u2a7e\u03381\u22751\u226f1\u226f1\u21ce1\u21ae1\u2af21\u220b1\u22fc"
+        + "1\u22fa1\u220b1\u045a1\u21cd2\u2266\u03381\u219a1\u20251\u22701"
+        + "\u219a1\u21ae1\u22702\u2266\u03382\u2a7d\u03382\u2a7d\u03381\u226e1"
+        + "\u22741\u226e1\u22ea1\u22ec1\u22242\ud835\udd5f1\u00ac1\u00ac1\u2209"
+        + "2\u22f9\u03382\u22f5\u03381\u22091\u22f71\u22f61\u220c1\u220c1\u22fe"
+        + "1\u22fd1\u22261\u22262\u2afd\u20e52\u2202\u03381\u2a141\u22801\u22e0"
+        + "2\u2aaf\u03381\u22802\u2aaf\u03381\u21cf1\u219b2\u2933\u03382\u219d"
+        + "\u03381\u219b1\u22eb1\u22ed1\u22811\u22e12\u2ab0\u03382\ud835\udcc31"
+        + "\u22241\u22261\u22411\u22441\u22441\u22241\u22261\u22e21\u22e31"
+        + "\u22842\u2ac5\u03381\u22882\u2282\u20d21\u22882\u2ac5\u03381\u22812"
+        + "\u2ab0\u03381\u22852\u2ac6\u03381\u22892\u2283\u20d21\u22892\u2ac6"
+        + "\u03381\u22791\u00f11\u00f11\u22781\u22ea1\u22ec1\u22eb1\u22ed1"
+        + "\u03bd1#1\u21161\u20071\u22ad1\u29042\u224d\u20d21\u22ac2\u2265"
+        + "\u20d22>\u20d21\u29de1\u29022\u2264\u20d22<\u20d22\u22b4\u20d21"
+        + "\u29032\u22b5\u20d22\u223c\u20d21\u21d61\u29231\u21961\u21961\u29271"
+        + "\u24c81\u00f31\u00f31\u229b1\u229a1\u00f41\u00f41\u043e1\u229d1"
+        + "\u01511\u2a381\u22991\u29bc1\u01531\u29bf2\ud835\udd2c1\u02db1\u00f2"
+        + "1\u00f21\u29c11\u29b51\u03a91\u222e1\u21ba1\u29be1\u29bb1\u203e1"
+        + "\u29c01\u014d1\u03c91\u03bf1\u29b61\u22962\ud835\udd601\u29b71\u29b9"
+        + "1\u22951\u22281\u21bb1\u2a5d1\u21341\u21341\u00aa1\u00aa1\u00ba1"
+        + "\u00ba1\u22b61\u2a561\u2a571\u2a5b1\u21341\u00f81\u00f81\u22981"
+        + "\u00f51\u00f51\u22971\u2a361\u00f61\u00f61\u233d1\u22251\u00b61"
+        + "\u00b61\u22251\u2af31\u2afd1\u22021\u043f1%1.1\u20301\u22a51\u20312"
+        + "\ud835\udd2d1\u03c61\u03d51\u21331\u260e1\u03c01\u22d41\u03d61\u210f"
+        + "1\u210e1\u210f1+1\u2a231\u229e1\u2a221\u22141\u2a251\u2a721\u00b11"
+        + "\u00b11\u2a261\u2a271\u00b11\u2a152\ud835\udd611\u00a31\u00a31\u227a"
+        + "1\u2ab31\u2ab71\u227c1\u2aaf1\u227a1\u2ab71\u227c1\u2aaf1\u2ab91"
+        + "\u2ab51\u22e81\u227e1\u20321\u21191\u2ab51\u2ab91\u22e81\u220f1"
+        + "\u232e1\u23121\u23131\u221d1\u221d1\u227e1\u22b02\ud835\udcc51\u03c8"
+        + "1\u20082\ud835\udd2e1\u2a0c2\ud835\udd621\u20572\ud835\udcc61\u210d1"
+        + "\u2a161?1\u225f1\"1\"1\u21db1\u21d21\u291c1\u290f1\u29642\u223d"
+        + "\u03311\u01551\u221a1\u29b31\u27e91\u29921\u29a51\u27e91\u00bb1"
+        + "\u00bb1\u21921\u29751\u21e51\u29201\u29331\u291e1\u21aa1\u21ac1"
+        + "\u29451\u29741\u21a31\u219d1\u291a1\u22361\u211a1\u290d1\u27731}1]1"
+        + "\u298c1\u298e1\u29901\u01591\u01571\u23091}1\u04401\u29371\u29691"
+        + "\u201d1\u201d1\u21b31\u211c1\u211b1\u211c1\u211d1\u25ad1\u00ae1"
+        + "\u00ae1\u297d1\u230b2\ud835\udd2f1\u21c11\u21c01\u296c1\u03c11\u03f1"
+        + "1\u21921\u21a31\u21c11\u21c01\u21c41\u21cc1\u21c91\u219d1\u22cc1"
+        + "\u02da1\u22531\u21c41\u21cc1\u200f1\u23b11\u23b11\u2aee1\u27ed1"
+        + "\u21fe1\u27e71\u29862\ud835\udd631\u2a2e1\u2a351)1\u29941\u2a121"
+        + "\u21c91\u203a2\ud835\udcc71\u21b11]1\u20191\u20191\u22cc1\u22ca1"
+        + "\u25b91\u22b51\u25b81\u29ce1\u29681\u211e1\u015b1\u201a1\u227b1"
+        + "\u2ab41\u2ab81\u01611\u227d1\u2ab01\u015f1\u015d1\u2ab61\u2aba1"
+        + "\u22e91\u2a131\u227f1\u04411\u22c51\u22a11\u2a661\u21d81\u29251"
+        + "\u21981\u21981\u00a71\u00a71;1\u29291\u22161\u22161\u27362\ud835"
+        + "\udd301\u23221\u266f1\u04491\u04481\u22231\u22251\u00ad1\u00ad1"
+        + "\u03c31\u03c21\u03c21\u223c1\u2a6a1\u22431\u22431\u2a9e1\u2aa01"
+        + "\u2a9d1\u2a9f1\u22461\u2a241\u29721\u21901\u22161\u2a331\u29e41"
+        + "\u22231\u23231\u2aaa1\u2aac2\u2aac\ufe001\u044c1/1\u29c41\u233f2"
+        + "\ud835\udd641\u26601\u26601\u22251\u22932\u2293\ufe001\u22942\u2294"
+        + "\ufe001\u228f1\u22911\u228f1\u22911\u22901\u22921\u22901\u22921"
+        + "\u25a11\u25a11\u25aa1\u25aa1\u21922\ud835\udcc81\u22161\u23231\u22c6"
+        + "1\u26061\u26051\u03f51\u03d51\u00af1\u22821\u2ac51\u2abd1\u22861"
+        + "\u2ac31\u2ac11\u2acb1\u228a1\u2abf1\u29791\u22821\u22861\u2ac51"
+        + "\u228a1\u2acb1\u2ac71\u2ad51\u2ad31\u227b1\u2ab81\u227d1\u2ab01"
+        + "\u2aba1\u2ab61\u22e91\u227f1\u22111\u266a1\u00b91\u00b91\u00b21"
+        + "\u00b21\u00b31\u00b31\u22831\u2ac61\u2abe1\u2ad81\u22871\u2ac41"
+        + "\u27c91\u2ad71\u297b1\u2ac21\u2acc1\u228b1\u2ac01\u22831\u22871"
+        + "\u2ac61\u228b1\u2acc1\u2ac81\u2ad41\u2ad61\u21d91\u29261\u21991"
+        + "\u21991\u292a1\u00df1\u00df1\u23161\u03c41\u23b41\u01651\u01631"
+        + "\u04421\u20db1\u23152\ud835\udd311\u22341\u22341\u03b81\u03d11\u03d1"
+        + "1\u22481\u223c1\u20091\u22481\u223c1\u00fe1\u00fe1\u02dc1\u00d71"
+        + "\u00d71\u22a01\u2a311\u2a301\u222d1\u29281\u22a41\u23361\u2af12"
+        + "\ud835\udd651\u2ada1\u29291\u20341\u21221\u25b51\u25bf1\u25c31\u22b4"
+        + "1\u225c1\u25b91\u22b51\u25ec1\u225c1\u2a3a1\u2a391\u29cd1\u2a3b1"
+        + "\u23e22\ud835\udcc91\u04461\u045b1\u01671\u226c1\u219e1\u21a01\u21d1"
+        + "1\u29631\u00fa1\u00fa1\u21911\u045e1\u016d1\u00fb1\u00fb1\u04431"
+        + "\u21c51\u01711\u296e1\u297e2\ud835\udd321\u00f91\u00f91\u21bf1\u21be"
+        + "1\u25801\u231c1\u231c1\u230f1\u25f81\u016b1\u00a81\u00a81\u01732"
+        + "\ud835\udd661\u21911\u21951\u21bf1\u21be1\u228e1\u03c51\u03d21\u03c5"
+        + "1\u21c81\u231d1\u231d1\u230e1\u016f1\u25f92\ud835\udcca1\u22f01"
+        + "\u01691\u25b51\u25b41\u21c81\u00fc1\u00fc1\u29a71\u21d51\u2ae81"
+        + "\u2ae91\u22a81\u299c1\u03f51\u03f01\u22051\u03d51\u03d61\u221d1"
+        + "\u21951\u03f11\u03c22\u228a\ufe002\u2acb\ufe002\u228b\ufe002\u2acc"
+        + "\ufe001\u03d11\u22b21\u22b31\u04321\u22a21\u22281\u22bb1\u225a1"
+        + "\u22ee1|1|2\ud835\udd331\u22b22\u2282\u20d22\u2283\u20d22\ud835"
+        + "\udd671\u221d1\u22b32\ud835\udccb2\u2acb\ufe002\u228a\ufe002\u2acc"
+        + "\ufe002\u228b\ufe001\u299a1\u01751\u2a5f1\u22271\u22591\u21182\ud835"
+        + "\udd342\ud835\udd681\u21181\u22401\u22402\ud835\udccc1\u22c21\u25ef1"
+        + "\u22c31\u25bd2\ud835\udd351\u27fa1\u27f71\u03be1\u27f81\u27f51\u27fc"
+        + "1\u22fb1\u2a002\ud835\udd691\u2a011\u2a021\u27f91\u27f62\ud835\udccd"
+        + "1\u2a061\u2a041\u25b31\u22c11\u22c01\u00fd1\u00fd1\u044f1\u01771"
+        + "\u044b1\u00a51\u00a52\ud835\udd361\u04572\ud835\udd6a2\ud835\udcce1"
+        + "\u044e1\u00ff1\u00ff1\u017a1\u017e1\u04371\u017c1\u21281\u03b62"
+        + "\ud835\udd371\u04361\u21dd2\ud835\udd6b2\ud835\udccf1\u200d1\u200c";
+
+    /**
+     * The number of references in the table
+     */
+    public static final int SIZE = 2231;
+
+    private static final String[] NAMES = new String[SIZE];
+
+    private static final String[] VALUES = new String[SIZE];
+
+    static {
+        int namePos = 0;
+        int valuePos = 0;
+        for (int i = 0; i < SIZE; i++) {
+            int nameEnd = PACKED_NAMES.indexOf(' ', namePos);
+            NAMES[i] = PACKED_NAMES.substring(namePos, nameEnd);
+            namePos = nameEnd + 1;
+            int len = PACKED_VALUES.charAt(valuePos++) - '0';
+            VALUES[i] = PACKED_VALUES.substring(valuePos, valuePos + len);
+            valuePos += len;
+        }
+    }
+
+    /**
+     * Returns the name of the reference with the specified index.
+     * 
+     * @param index the index of the reference
+     * @return the name of the reference
+     */
+    public static String getName(int index) {
+        return NAMES[index];
+    }
+
+    /**
+     * Returns the decoded value of the reference with the specified index.
+     * 
+     * @param index the index of the reference
+     * @return the value of the reference
+     */
+    public static String getValue(int index) {
+        return VALUES[index];
+    }
+
+    private HtmlNamedReferences() {
+    }
+
+}
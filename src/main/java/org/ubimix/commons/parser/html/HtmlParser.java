@@ -3,34 +3,72 @@
  */
 package org.ubimix.commons.parser.html;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 
-import org.ubimix.commons.parser.AbstractCharStream.Pointer;
 import org.ubimix.commons.parser.CompositeTokenizer;
 import org.ubimix.commons.parser.ICharStream;
-import org.ubimix.commons.parser.ICharStream.IPointer;
 import org.ubimix.commons.parser.ITokenizer;
 import org.ubimix.commons.parser.StreamToken;
+import org.ubimix.commons.parser.UnboundedCharStream;
 import org.ubimix.commons.parser.balancer.TagBalancer;
 import org.ubimix.commons.parser.balancer.TagBalancer.IListener;
 import org.ubimix.commons.parser.balancer.TagDescriptor;
-import org.ubimix.commons.parser.base.SequenceTokenizer;
+import org.ubimix.commons.parser.html.HtmlEntityTokenizer.HtmlEntityToken;
+import org.ubimix.commons.parser.html.HtmlParserLimits.Limit;
+import org.ubimix.commons.parser.html.HtmlRawTextTokenizer.SkippedContentToken;
+import org.ubimix.commons.parser.html.HtmlTextTokenizer.HtmlTextToken;
 import org.ubimix.commons.parser.text.TextTokenizer;
 import org.ubimix.commons.parser.xml.AbstractXmlParser;
+import org.ubimix.commons.parser.xml.AttrToken;
 import org.ubimix.commons.parser.xml.CDATAToken;
-import org.ubimix.commons.parser.xml.CommentTokenizer;
 import org.ubimix.commons.parser.xml.CommentTokenizer.CommentToken;
 import org.ubimix.commons.parser.xml.Entity;
 import org.ubimix.commons.parser.xml.EntityFactory;
 import org.ubimix.commons.parser.xml.EntityToken;
 import org.ubimix.commons.parser.xml.EntityTokenizer;
+import org.ubimix.commons.parser.xml.IXmlListener;
 import org.ubimix.commons.parser.xml.TagToken;
 import org.ubimix.commons.parser.xml.XMLTokenizer;
 
 /**
+ * HTML parser restoring the structure of HTML documents. Listeners
+ * implementing the {@link IHtmlTextListener} interface receive text runs as
+ * views of the internal text buffer instead of new strings.
+ * <p>
+ * Concurrency model: parser instances are light-weight parsing sessions
+ * keeping the state of the currently parsed document (text buffer, tag
+ * balancer, tokenizer stack) and they must not be used by multiple threads at
+ * the same time. Each parser has its own XML tokenizer with its own entity
+ * factory because the factory registers entities for unknown references
+ * found in documents (for example numeric references in attribute values).
+ * All tables shared between instances - HTML tokenizers, entity dictionaries
+ * and compiled tag descriptors - are created once and they are only read
+ * after that, so any number of parsers can work in parallel in different
+ * threads. Use the {@link HtmlParserFactory} class to create new parser
+ * sessions.
+ * </p>
+ * <p>
+ * Attribute and namespace maps given to listeners are read-only: small
+ * attribute sets are reported as immutable maps decoding values on demand,
+ * bigger ones as unmodifiable views. The same maps are given to the
+ * corresponding <code>beginElement</code> and <code>endElement</code> calls;
+ * listeners should copy them to keep or change attributes.
+ * </p>
+ * 
  * @author kotelnikov
  */
 public class HtmlParser extends AbstractXmlParser {
@@ -62,6 +100,21 @@ public class HtmlParser extends AbstractXmlParser {
 
     }
 
+    /**
+     * The holder of the tokenizer recognizing named references. The table of
+     * HTML5 references is loaded when this class is used for the first time.
+     */
+    private static class EntityTokenizerHolder {
+
+        private static final HtmlEntityTokenizer INSTANCE = HtmlEntityTokenizer
+            .newHtml5Tokenizer(HtmlEntityTokenizer.getEntities(
+                XHTML_ENTITIES.XML,
+                XHTML_ENTITIES.CHARS,
+                XHTML_ENTITIES.SYMBOLS,
+                XHTML_ENTITIES.SPECIALS));
+
+    }
+
     public static class StackableTokenizer implements ITokenizer {
 
         private ITokenizer fCurrentTokenizer;
@@ -100,16 +153,33 @@ public class HtmlParser extends AbstractXmlParser {
             return token;
         }
 
+        /**
+         * Removes all pushed tokenizers and activates the default one.
+         */
+        public void reset() {
+            fStack.clear();
+            fCurrentTokenizer = fDefaultTokenizer;
+        }
+
         public void setDefaultTokenizer(ITokenizer defaultTokenizer) {
             fDefaultTokenizer = defaultTokenizer;
+            if (fStack.isEmpty()) {
+                fCurrentTokenizer = fDefaultTokenizer;
+            }
         }
 
     }
 
+    /**
+     * Information about an opened element. Attribute and namespace maps are
+     * created only for elements having attributes; all other elements share
+     * the same empty maps.
+     */
     protected static class TagInfo {
-        private Map<String, String> fAttributes = new HashMap<String, String>();
 
-        private Map<String, String> fNamespaces = new HashMap<String, String>();
+        private Map<String, String> fAttributes = Collections.emptyMap();
+
+        private Map<String, String> fNamespaces = Collections.emptyMap();
 
         private TagInfo fParent;
 
@@ -118,25 +188,96 @@ public class HtmlParser extends AbstractXmlParser {
         public TagInfo(
             TagInfo parent,
             String tagName,
-            Map<String, String> attributes) {
+            List<AttrToken> attributes) {
+            this(parent, tagName, attributes, null);
+        }
+
+        /**
+         * @param parent the parent element
+         * @param tagName the name of this element
+         * @param attributes attribute tokens of the element
+         * @param filter names of attributes to keep; if it is
+         *        <code>null</code> then all attributes are kept
+         */
+        public TagInfo(
+            TagInfo parent,
+            String tagName,
+            List<AttrToken> attributes,
+            Set<String> filter) {
             fParent = parent;
             fTagName = tagName;
-            if (attributes != null) {
-                for (Map.Entry<String, String> entry : attributes.entrySet()) {
-                    String key = entry.getKey();
-                    String value = entry.getValue();
-                    String prefix = null;
-                    if (key.startsWith(NS_PREFIX)) {
-                        prefix = key.substring(NS_PREFIX.length());
-                    } else if (key.equals(NS)) {
-                        prefix = "";
+            if (attributes == null) {
+                return;
+            }
+            int count = 0;
+            boolean namespaces = false;
+            for (AttrToken attr : attributes) {
+                String name = attr.getName();
+                if (filter == null || filter.contains(name)) {
+                    count++;
+                    namespaces |= name.startsWith(NS);
+                }
+            }
+            if (count == 0) {
+                return;
+            }
+            if (count > AttributeMap.MAX_SIZE || namespaces) {
+                Map<String, String> map = new LinkedHashMap<String, String>();
+                for (AttrToken attr : attributes) {
+                    String name = attr.getName();
+                    if (filter == null || filter.contains(name)) {
+                        addAttribute(map, name, attr.getValue());
                     }
-                    if (prefix != null) {
-                        fNamespaces.put(prefix, value);
-                    } else {
-                        fAttributes.put(key, value);
+                }
+                setAttributes(map);
+            } else {
+                AttributeMap map = new AttributeMap(attributes, count);
+                for (int i = 0; i < attributes.size(); i++) {
+                    String name = attributes.get(i).getName();
+                    if (filter == null || filter.contains(name)) {
+                        map.add(name, i);
                     }
                 }
+                fAttributes = map;
+            }
+        }
+
+        public TagInfo(
+            TagInfo parent,
+            String tagName,
+            Map<String, String> attributes) {
+            fParent = parent;
+            fTagName = tagName;
+            if (attributes != null && !attributes.isEmpty()) {
+                Map<String, String> map = new LinkedHashMap<String, String>();
+                for (Map.Entry<String, String> entry : attributes.entrySet()) {
+                    addAttribute(map, entry.getKey(), entry.getValue());
+                }
+                setAttributes(map);
+            }
+        }
+
+        /**
+         * Adds the specified attribute to the given map; namespace
+         * declarations are stored separately.
+         */
+        private void addAttribute(
+            Map<String, String> map,
+            String key,
+            String value) {
+            String prefix = null;
+            if (key.startsWith(NS_PREFIX)) {
+                prefix = key.substring(NS_PREFIX.length());
+            } else if (key.equals(NS)) {
+                prefix = "";
+            }
+            if (prefix != null) {
+                if (fNamespaces.isEmpty()) {
+                    fNamespaces = new LinkedHashMap<String, String>();
+                }
+                fNamespaces.put(prefix, value);
+            } else {
+                map.put(key, value);
             }
         }
 
@@ -160,50 +301,165 @@ public class HtmlParser extends AbstractXmlParser {
             return fParent;
         }
 
+        /**
+         * Sets the attributes built by the
+         * {@link #addAttribute(Map, String, String)} method. Attribute and
+         * namespace maps are reported to listeners, so they are wrapped in
+         * read-only views.
+         */
+        private void setAttributes(Map<String, String> attributes) {
+            fAttributes = Collections.unmodifiableMap(attributes);
+            if (!fNamespaces.isEmpty()) {
+                fNamespaces = Collections.unmodifiableMap(fNamespaces);
+            }
+        }
+
     }
 
+    /**
+     * This attribute filter removes all attributes of elements (see
+     * {@link #setAttributeFilter(Set)}).
+     */
+    public static final Set<String> NO_ATTRIBUTES = Collections.emptySet();
+
     private static final String NS = "xmlns";
 
     private static final String NS_PREFIX = "xmlns:";
 
-    private static TextTokenizer TEXT_TOKENIZER;
+    /**
+     * The factory of shared {@link #XHTML_ENTITIES}. It is used only during
+     * the class initialization, so it is never modified by parsers.
+     */
+    private static final EntityFactory ENTITY_FACTORY = new EntityFactory();
+
+    /**
+     * Recognizes numeric references and all named references defined by the
+     * HTML5 specification. Named references of entities defined in the
+     * {@link #XHTML_ENTITIES} dictionaries are reported with these entities.
+     */
+    private static final ITokenizer HTML_ENTITY_TOKENIZER = new ITokenizer() {
+        @Override
+        public StreamToken read(ICharStream stream) {
+            if (stream.isTerminated() || stream.getChar() != '&') {
+                return null;
+            }
+            return EntityTokenizerHolder.INSTANCE.read(stream);
+        }
+    };
+
+    private static final CompositeTokenizer SCRIPT_TOKENIZER;
+
+    private static final CompositeTokenizer STYLE_TOKENIZER;
 
-    public static XHTMLEntities XHTML_ENTITIES;
+    private static final TextTokenizer TEXT_TOKENIZER = new TextTokenizer();
+
+    /**
+     * This tokenizer finishes the reading of truncated documents: it does not
+     * return any tokens, so the rest of the stream is not read.
+     */
+    private static final ITokenizer NO_TOKENS = new ITokenizer() {
+        @Override
+        public StreamToken read(ICharStream stream) {
+            return null;
+        }
+    };
 
-    private static XMLTokenizer XML_TOKENIZER;
+    public static final XHTMLEntities XHTML_ENTITIES = new XHTMLEntities(
+        ENTITY_FACTORY);
 
     static {
-        EntityFactory entityFactory = new EntityFactory();
-        XHTML_ENTITIES = new XHTMLEntities(entityFactory);
-        EntityTokenizer entityReader = new EntityTokenizer(entityFactory, false);
-        XML_TOKENIZER = new XMLTokenizer(entityReader);
-        TEXT_TOKENIZER = new TextTokenizer();
-        XML_TOKENIZER.addTokenizer(TEXT_TOKENIZER);
+        SCRIPT_TOKENIZER = newTagDelimitedTextTokenizer(
+            HtmlTagDictionary.SCRIPT,
+            HtmlParserLimits.UNLIMITED);
+        STYLE_TOKENIZER = newTagDelimitedTextTokenizer(
+            HtmlTagDictionary.STYLE,
+            HtmlParserLimits.UNLIMITED);
     }
 
+    /**
+     * Names of attributes reported to listeners; if this field is
+     * <code>null</code> then all attributes are reported.
+     */
+    private Set<String> fAttributeFilter;
+
     protected StringBuilder fBuf = new StringBuilder();
 
     private int fDepth;
 
+    /**
+     * The number of elements reported in the current document.
+     */
+    private int fElementCount;
+
+    /**
+     * The number of opened elements which are not reported because the
+     * document exceeds the maximal number of elements.
+     */
+    private int fIgnoredDepth;
+
+    private HtmlParserLimits fLimits = HtmlParserLimits.NO_LIMITS;
+
+    /**
+     * If this flag is <code>true</code> then entities are decoded and merged
+     * with the surrounding text.
+     */
+    private boolean fMergeEntities;
+
+    /**
+     * If this flag is <code>true</code> then comments are skipped by the
+     * {@link HtmlCommentSkipper} without creating comment tokens.
+     */
+    private boolean fSkipComments;
+
+    /**
+     * Names of elements which content is skipped
+     */
+    private Set<String> fSkippedElements = Collections.emptySet();
+
     protected TagBalancer fTagBalancer;
 
-    private IListener fTagBalancerListener = new TagBalancer.IListener() {
+    /**
+     * This flag is <code>true</code> if the rest of the current document is
+     * ignored because the document exceeds the maximal number of elements.
+     * It is set when the balancer opens an element (explicit or implied)
+     * over the limit.
+     */
+    private boolean fTruncated;
 
-        private TagInfo fTagInfo;
+    private IListener fTagBalancerListener = new TagBalancer.IListener() {
 
         @Override
         public void begin(String tag) {
             if (HtmlTagDictionary.isToken(tag)) {
                 return;
             }
-            Map<String, String> attributes = null;
-            if (fTagToken != null && tag.equals(getTagName(fTagToken))) {
-                attributes = fTagToken.getAttributesAsMap();
+            if (fTruncated || fElementCount >= fLimits.getMaxElements()) {
+                if (!fTruncated) {
+                    onLimitExceeded(Limit.ELEMENTS);
+                    fTruncated = true;
+                }
+                fIgnoredDepth++;
+                return;
             }
-            if (attributes == null) {
-                attributes = Collections.emptyMap();
+            if (fTagBalancer.getDepth() > fLimits.getMaxDepth()) {
+                // Only in the ABORT mode; otherwise the depth is limited by
+                // the balancer.
+                onLimitExceeded(Limit.DEPTH);
             }
-            fTagInfo = new TagInfo(fTagInfo, tag, attributes);
+            fElementCount++;
+            List<AttrToken> attributes = null;
+            if (fTagToken != null
+                && !NO_ATTRIBUTES.equals(fAttributeFilter)
+                && tag.equals(getTagName(fTagToken))) {
+                // Tags with too many attributes are already replaced by the
+                // HtmlAttributeLimiter, so attributes are within the limit.
+                attributes = fTagToken.getAttributes();
+            }
+            fTagInfo = new TagInfo(
+                fTagInfo,
+                tag,
+                attributes,
+                fAttributeFilter);
             fListener.beginElement(
                 tag,
                 fTagInfo.getAttributes(),
@@ -218,6 +474,10 @@ public class HtmlParser extends AbstractXmlParser {
             if (HtmlTagDictionary.isToken(tag)) {
                 return;
             }
+            if (fIgnoredDepth > 0) {
+                fIgnoredDepth--;
+                return;
+            }
             fDepth--;
             fListener.endElement(
                 fTagInfo.getTagName(),
@@ -229,8 +489,15 @@ public class HtmlParser extends AbstractXmlParser {
         }
     };
 
+    private TagInfo fTagInfo;
+
     private TagToken fTagToken;
 
+    /**
+     * The XML tokenizer of this parser (see {@link #newXmlTokenizer()}).
+     */
+    private ITokenizer fXmlTokenizer;
+
     public HtmlParser() {
         this(HtmlTagDescriptorBuilder.getInstance());
     }
@@ -243,7 +510,15 @@ public class HtmlParser extends AbstractXmlParser {
      *  
      */
     public HtmlParser(TagDescriptor tagDescriptor) {
-        super(new ContextSensitiveTokenizer(XML_TOKENIZER));
+        this(tagDescriptor, newXmlTokenizer());
+    }
+
+    private HtmlParser(TagDescriptor tagDescriptor, ITokenizer xmlTokenizer) {
+        super(new ContextSensitiveTokenizer(newHtmlTokenizer(
+            xmlTokenizer,
+            false,
+            HtmlParserLimits.NO_LIMITS)));
+        fXmlTokenizer = xmlTokenizer;
         fTagBalancer = new TagBalancer(tagDescriptor, fTagBalancerListener);
         ContextSensitiveTokenizer t = getTokenizer();
         t.registerTokenizer(
@@ -254,7 +529,24 @@ public class HtmlParser extends AbstractXmlParser {
             getTagDelimitedTextTokenizer(HtmlTagDictionary.STYLE));
     }
 
+    /**
+     * Appends the specified code point to the text buffer.
+     */
+    private void appendCodePoint(int codePoint) {
+        int free = fLimits.getMaxTextLength() - fBuf.length();
+        if (Character.charCount(codePoint) > free) {
+            onLimitExceeded(Limit.TEXT_LENGTH);
+            return;
+        }
+        fBuf.appendCodePoint(codePoint);
+    }
+
     private void appendText(String content) {
+        int free = fLimits.getMaxTextLength() - fBuf.length();
+        if (content.length() > free) {
+            onLimitExceeded(Limit.TEXT_LENGTH);
+            content = cutText(content, free);
+        }
         fBuf.append(content);
     }
 
@@ -263,69 +555,76 @@ public class HtmlParser extends AbstractXmlParser {
         return type.isInstance(token);
     }
 
+    /**
+     * Returns the beginning of the specified text with the given length. A
+     * surrogate pair at the end of the returned text is never split.
+     */
+    private static String cutText(String text, int length) {
+        if (length > 0 && Character.isHighSurrogate(text.charAt(length - 1))) {
+            length--;
+        }
+        return text.substring(0, length);
+    }
+
     @Override
     protected void dispatchToken(StreamToken token) {
-        super.dispatchToken(token);
+        if (token instanceof HtmlTextToken) {
+            reportWord(token);
+        } else if (token instanceof SkippedContentToken) {
+            // The content of skipped elements is not reported
+        } else if (token instanceof HtmlEntityToken) {
+            reportEntity((HtmlEntityToken) token);
+        } else {
+            super.dispatchToken(token);
+        }
+        if (fTruncated) {
+            truncate();
+        }
     }
 
     @Override
     protected void finishParse() {
         flushText();
         fTagBalancer.finish();
+        fElementCount = 0;
+        if (fTruncated) {
+            fTruncated = false;
+            getTokenizer().reset();
+        }
     }
 
     protected void flushText() {
         if (fBuf.length() > 0) {
-            String str = fBuf.toString();
-            fTagBalancer.begin(HtmlTagDictionary.TOKEN_TEXT);
-            fListener.onText(str);
-            fTagBalancer.end(HtmlTagDictionary.TOKEN_TEXT);
-            fBuf.delete(0, fBuf.length());
+            fTagBalancer.ensureLeafContext(HtmlTagDictionary.TOKEN_TEXT);
+            if (!fTruncated) {
+                notifyText(fBuf);
+            }
+            fBuf.setLength(0);
         }
     }
 
+    /**
+     * Returns a tokenizer used to read the content of elements like SCRIPT or
+     * STYLE. Tokenizers are stateless, so tokenizers for SCRIPT and STYLE
+     * elements are created once and shared by all parser instances unless
+     * the length of text runs is limited (see
+     * {@link #setLimits(HtmlParserLimits)}).
+     * 
+     * @param delimiterTagName the name of the element
+     * @return a tokenizer reading the content of the specified element
+     */
     protected CompositeTokenizer getTagDelimitedTextTokenizer(
         String delimiterTagName) {
-        CompositeTokenizer tokenizer = new CompositeTokenizer();
-        SequenceTokenizer scriptEnd = new SequenceTokenizer("</"
-            + delimiterTagName
-            + ">") {
-
-            @Override
-            protected TagToken newToken() {
-                TagToken token = new TagToken() {
-                    {
-                        init(false, true);
-                    }
-                };
-                return token;
+        int maxLength = fLimits.getMaxTextLength();
+        if (maxLength == HtmlParserLimits.UNLIMITED) {
+            if (HtmlTagDictionary.SCRIPT.equals(delimiterTagName)) {
+                return SCRIPT_TOKENIZER;
             }
-
-            @Override
-            public StreamToken read(ICharStream stream) {
-                TagToken token = (TagToken) super.read(stream);
-                if (token != null) {
-                    IPointer begin = token.getBegin();
-                    IPointer end = token.getEnd();
-                    String str = token.getText();
-                    Pointer b = new Pointer(
-                        begin.getPos() + 2,
-                        begin.getColumn() + 2,
-                        begin.getLine());
-                    Pointer e = new Pointer(
-                        end.getPos() - 1,
-                        end.getColumn() - 1,
-                        end.getLine());
-                    token.setName(b, e, str.substring(2, str.length() - 1));
-                }
-                return token;
+            if (HtmlTagDictionary.STYLE.equals(delimiterTagName)) {
+                return STYLE_TOKENIZER;
             }
-        };
-        tokenizer.addTokenizer(scriptEnd);
-        tokenizer.addTokenizer(XML_TOKENIZER.getEntityTokenizer());
-        tokenizer.addTokenizer(CommentTokenizer.INSTANCE);
-        tokenizer.addTokenizer(TEXT_TOKENIZER);
-        return tokenizer;
+        }
+        return newTagDelimitedTextTokenizer(delimiterTagName, maxLength);
     }
 
     private String getTagName(TagToken tagToken) {
@@ -333,7 +632,35 @@ public class HtmlParser extends AbstractXmlParser {
             return null;
         }
         String tagName = tagToken.getName();
-        return tagName.toLowerCase();
+        return HtmlTagTable.toTagName(tagName);
+    }
+
+    /**
+     * Returns names of attributes reported to listeners or <code>null</code>
+     * if all attributes are reported.
+     * 
+     * @return names of attributes reported to listeners
+     */
+    public Set<String> getAttributeFilter() {
+        return fAttributeFilter;
+    }
+
+    /**
+     * Returns names of elements which content is skipped.
+     * 
+     * @return names of elements which content is skipped
+     */
+    public Set<String> getSkippedElements() {
+        return fSkippedElements;
+    }
+
+    /**
+     * Returns limits of documents parsed by this parser.
+     * 
+     * @return limits of documents parsed by this parser
+     */
+    public HtmlParserLimits getLimits() {
+        return fLimits;
     }
 
     public TagToken getTagToken() {
@@ -345,6 +672,212 @@ public class HtmlParser extends AbstractXmlParser {
         return (ContextSensitiveTokenizer) super.getTokenizer();
     }
 
+    /**
+     * Returns <code>true</code> if entities are merged with the surrounding
+     * text (see {@link #setMergeEntities(boolean)}).
+     * 
+     * @return <code>true</code> if entities are merged with the text
+     */
+    public boolean isMergeEntities() {
+        return fMergeEntities;
+    }
+
+    /**
+     * Returns <code>true</code> if comments are skipped without creating
+     * comment tokens (see {@link #setSkipComments(boolean)}).
+     * 
+     * @return <code>true</code> if comments are skipped
+     */
+    public boolean isSkipComments() {
+        return fSkipComments;
+    }
+
+    /**
+     * Creates the default tokenizer of parsers: the given XML tokenizer
+     * preceded by the {@link #HTML_ENTITY_TOKENIZER} and the
+     * {@link HtmlTextTokenizer} reading text runs. If comments are skipped
+     * (see {@link #setSkipComments(boolean)}) then they are recognized by
+     * the {@link HtmlCommentSkipper} before the XML tokenizer. Limited text
+     * runs are read in bounded chunks by tokenizers created for the given
+     * limits, and opening tags with too many attributes are intercepted by
+     * the {@link HtmlAttributeLimiter}.
+     * 
+     * @param xmlTokenizer the XML tokenizer of the parser
+     * @param skipComments if this flag is <code>true</code> then comments
+     *        are skipped
+     * @param limits limits of parsed documents
+     * @return the default tokenizer of a parser
+     */
+    private static CompositeTokenizer newHtmlTokenizer(
+        ITokenizer xmlTokenizer,
+        boolean skipComments,
+        HtmlParserLimits limits) {
+        CompositeTokenizer tokenizer = new CompositeTokenizer();
+        int maxTextLength = limits.getMaxTextLength();
+        if (maxTextLength == HtmlParserLimits.UNLIMITED) {
+            tokenizer.addTokenizer(HtmlTextTokenizer.INSTANCE);
+        } else {
+            tokenizer.addTokenizer(new HtmlTextTokenizer(maxTextLength));
+            tokenizer.addTokenizer(new HtmlSpaceTokenizer(maxTextLength));
+        }
+        tokenizer.addTokenizer(HTML_ENTITY_TOKENIZER);
+        if (skipComments) {
+            tokenizer.addTokenizer(HtmlCommentSkipper.INSTANCE);
+        }
+        int maxAttributes = limits.getMaxAttributes();
+        if (maxAttributes != HtmlParserLimits.UNLIMITED) {
+            tokenizer.addTokenizer(new HtmlAttributeLimiter(
+                maxAttributes,
+                limits.isAbort()));
+        }
+        tokenizer.addTokenizer(xmlTokenizer);
+        return tokenizer;
+    }
+
+    /**
+     * Creates the XML tokenizer of a parser. It reads tags, attributes and
+     * references which are not recognized by the
+     * {@link #HTML_ENTITY_TOKENIZER}, like references in attribute values.
+     * The entity factory used by XML tokenizers registers new entities for
+     * unknown references found in documents, so each parser has its own
+     * factory and tokenizer; they are never shared between threads.
+     * 
+     * @return a new XML tokenizer
+     */
+    private static XMLTokenizer newXmlTokenizer() {
+        EntityFactory entityFactory = new EntityFactory();
+        // Registers XHTML entities in the factory
+        new XHTMLEntities(entityFactory);
+        XMLTokenizer tokenizer = new XMLTokenizer(new EntityTokenizer(
+            entityFactory,
+            false));
+        tokenizer.addTokenizer(TEXT_TOKENIZER);
+        return tokenizer;
+    }
+
+    /**
+     * Creates a tokenizer reading the content of the specified raw text
+     * element (see {@link HtmlRawTextTokenizer}). References are not decoded
+     * in raw text elements, so a script like <code>"?a=1&amp;copy=2"</code>
+     * is reported as is.
+     * 
+     * @param delimiterTagName the name of the element
+     * @param maxLength the maximal length of text tokens
+     * @return a tokenizer reading the content of the element
+     */
+    private static CompositeTokenizer newTagDelimitedTextTokenizer(
+        String delimiterTagName,
+        int maxLength) {
+        CompositeTokenizer tokenizer = new CompositeTokenizer();
+        tokenizer.addTokenizer(new HtmlRawTextTokenizer(
+            delimiterTagName,
+            null,
+            maxLength));
+        return tokenizer;
+    }
+
+    /**
+     * Notifies the listener about the specified text. Listeners implementing
+     * the {@link IHtmlTextListener} interface receive the text as is; all
+     * others receive a string copy of the text.
+     * 
+     * @param text the text to report
+     */
+    private void notifyText(CharSequence text) {
+        if (fListener instanceof IHtmlTextListener) {
+            ((IHtmlTextListener) fListener).onCharacters(text);
+        } else {
+            fListener.onText(text.toString());
+        }
+    }
+
+    /**
+     * This method is called when the current document exceeds the specified
+     * limit. It throws a {@link HtmlLimitException} if limits use the
+     * {@link HtmlParserLimits.Policy#ABORT} policy; otherwise it returns and
+     * the caller truncates the document.
+     * 
+     * @param limit the exceeded limit
+     */
+    protected void onLimitExceeded(Limit limit) {
+        if (fLimits.isAbort()) {
+            throw new HtmlLimitException(limit, fLimits.getValue(limit));
+        }
+    }
+
+    /**
+     * Parses the specified file using a {@link MappedFileCharStream}. The
+     * file is memory-mapped and decoded on the fly, so its content is not
+     * copied into the heap.
+     * 
+     * @param file the file to parse
+     * @param charset the charset of the file
+     * @param listener the listener notified about parsed elements
+     * @throws IOException an error raised while reading the file
+     */
+    public void parse(File file, Charset charset, IXmlListener listener)
+        throws IOException {
+        MappedFileCharStream stream = new MappedFileCharStream(file, charset);
+        try {
+            parse(stream, listener);
+            stream.checkError();
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Parses a document from the specified byte stream. Bytes are decoded and
+     * tokenized on the fly, so the document is never loaded in memory. See
+     * {@link ByteCharLoader} for details about decoding.
+     * 
+     * @param input the stream to parse
+     * @param charset the charset of the document
+     * @param listener the listener notified about parsed elements
+     * @throws IOException an error raised while reading the stream
+     */
+    public void parse(
+        InputStream input,
+        Charset charset,
+        IXmlListener listener) throws IOException {
+        parse(Channels.newChannel(input), charset, listener);
+    }
+
+    /**
+     * Parses a document from the specified channel. Bytes are decoded and
+     * tokenized on the fly, so the document is never loaded in memory. See
+     * {@link ByteCharLoader} for details about decoding.
+     * 
+     * @param channel the channel to read
+     * @param charset the charset of the document
+     * @param listener the listener notified about parsed elements
+     * @throws IOException an error raised while reading the channel
+     */
+    public void parse(
+        ReadableByteChannel channel,
+        Charset charset,
+        IXmlListener listener) throws IOException {
+        ChannelCharLoader loader = new ChannelCharLoader(channel, charset);
+        parse(new UnboundedCharStream(loader), listener);
+        loader.checkError();
+    }
+
+    /**
+     * Parses a document from the specified reader. Characters are loaded
+     * using a fixed-size buffer, so the memory used by the parser does not
+     * depend on the size of the document.
+     * 
+     * @param reader the reader providing the document
+     * @param listener the listener notified about parsed elements
+     * @throws IOException an error raised by the reader
+     */
+    public void parse(Reader reader, IXmlListener listener)
+        throws IOException {
+        ReaderCharLoader loader = new ReaderCharLoader(reader);
+        parse(new UnboundedCharStream(loader), listener);
+        loader.checkError();
+    }
+
     @Override
     protected void reportCDATA(CDATAToken token) {
         appendText(token.getText());
@@ -356,11 +889,44 @@ public class HtmlParser extends AbstractXmlParser {
 
     @Override
     protected void reportEntity(EntityToken token) {
-        flushText();
-        fTagBalancer.begin(HtmlTagDictionary.TOKEN_TEXT);
         Entity entity = token.getEntityKey();
-        fListener.onEntity(entity);
-        fTagBalancer.end(HtmlTagDictionary.TOKEN_TEXT);
+        if (fMergeEntities) {
+            appendCodePoint(entity.getCode());
+            return;
+        }
+        flushText();
+        fTagBalancer.ensureLeafContext(HtmlTagDictionary.TOKEN_TEXT);
+        if (!fTruncated) {
+            fListener.onEntity(entity);
+        }
+    }
+
+    /**
+     * Reports a reference recognized by the {@link HtmlEntityTokenizer}.
+     * Named references corresponding to registered entities are reported
+     * exactly as {@link EntityToken}s unless entities are merged with the
+     * text (see {@link #setMergeEntities(boolean)}); all others are added to
+     * the text. Numeric references are appended to the text buffer as code
+     * points.
+     * 
+     * @param token the reference token
+     */
+    protected void reportEntity(HtmlEntityToken token) {
+        int codePoint = token.getCodePoint();
+        if (codePoint >= 0) {
+            appendCodePoint(codePoint);
+            return;
+        }
+        Entity entity = token.getEntity();
+        if (entity != null && !fMergeEntities) {
+            flushText();
+            fTagBalancer.ensureLeafContext(HtmlTagDictionary.TOKEN_TEXT);
+            if (!fTruncated) {
+                fListener.onEntity(entity);
+            }
+        } else {
+            appendText(token.getValue());
+        }
     }
 
     @Override
@@ -387,12 +953,16 @@ public class HtmlParser extends AbstractXmlParser {
 
     protected void reportSpaceTag(String tokenTag, StreamToken token) {
         flushText();
-        fTagBalancer.begin(tokenTag);
-        if (fDepth > 0) {
+        fTagBalancer.ensureLeafContext(tokenTag);
+        if (fDepth > 0 && !fTruncated) {
             String str = token.getText();
-            fListener.onText(str);
+            int maxTextLength = fLimits.getMaxTextLength();
+            if (str.length() > maxTextLength) {
+                onLimitExceeded(Limit.TEXT_LENGTH);
+                str = cutText(str, maxTextLength);
+            }
+            notifyText(str);
         }
-        fTagBalancer.end(tokenTag);
     }
 
     @Override
@@ -420,4 +990,157 @@ public class HtmlParser extends AbstractXmlParser {
     protected void reportWord(StreamToken token) {
         appendText(token.getText());
     }
+
+    /**
+     * Resets the internal state of this parser: forgets all opened elements,
+     * the buffered text and the current listener. This method should be
+     * called before re-using a parser which was interrupted by an exception
+     * in the middle of a document. Parsers completed normally are already in
+     * the initial state.
+     */
+    public void reset() {
+        fBuf.setLength(0);
+        fDepth = 0;
+        fElementCount = 0;
+        fIgnoredDepth = 0;
+        fTruncated = false;
+        fTagInfo = null;
+        fTagToken = null;
+        fListener = null;
+        if (fTagBalancer != null) {
+            fTagBalancer.reset();
+        }
+        getTokenizer().reset();
+    }
+
+    /**
+     * Sets names of attributes reported to listeners. All other attributes
+     * are skipped: their values are never decoded and they are not stored in
+     * attribute maps. Namespace declarations are filtered as well, so the
+     * "xmlns" attributes should be included in the filter if namespaces are
+     * required. Use the {@link #NO_ATTRIBUTES} filter to skip all attributes
+     * or the {@link HtmlTagDictionary#IMPORTANT_ATTRIBUTES} filter to keep
+     * only attributes like "id", "href" or "src". The filter is not changed
+     * by the {@link #reset()} method.
+     * 
+     * @param filter names of attributes to report; if it is
+     *        <code>null</code> then all attributes are reported
+     */
+    public void setAttributeFilter(Set<String> filter) {
+        fAttributeFilter = filter;
+    }
+
+    /**
+     * Sets limits of documents parsed by this parser (see
+     * {@link HtmlParserLimits}). Limits are checked for each document
+     * separately and they are not changed by the {@link #reset()} method.
+     * 
+     * @param limits limits of documents; if it is <code>null</code> then
+     *        documents are not limited
+     */
+    public void setLimits(HtmlParserLimits limits) {
+        fLimits = limits != null ? limits : HtmlParserLimits.NO_LIMITS;
+        if (fTagBalancer != null) {
+            fTagBalancer.setMaxDepth(fLimits.isAbort()
+                ? HtmlParserLimits.UNLIMITED
+                : fLimits.getMaxDepth());
+            updateTokenizers();
+        }
+    }
+
+    /**
+     * Defines if entities should be merged with the surrounding text. By
+     * default each entity is reported by a separate
+     * {@link IXmlListener#onEntity(Entity)} call, so the text "caf&amp;eacute;
+     * cr&amp;egrave;me" is split into several text and entity notifications.
+     * If this flag is <code>true</code> then entities are decoded to their
+     * characters and the listener receives one
+     * {@link IXmlListener#onText(String)} call for each text run. Spaces and
+     * line breaks are still reported separately. This flag is not changed by
+     * the {@link #reset()} method.
+     * 
+     * @param mergeEntities if this flag is <code>true</code> then entities
+     *        are merged with the text
+     */
+    public void setMergeEntities(boolean mergeEntities) {
+        fMergeEntities = mergeEntities;
+    }
+
+    /**
+     * Defines if comments should be skipped by a direct search of their end.
+     * In this mode comment tokens and their text are not created and the
+     * {@link #reportComment(CommentToken)} method is never called. This
+     * parser ignores comments anyway, so the result of parsing is the same
+     * in both modes; this mode is disabled by default only for subclasses
+     * handling comments. Comments in elements like SCRIPT and STYLE are not
+     * affected. This flag is not changed by the {@link #reset()} method.
+     * 
+     * @param skipComments if this flag is <code>true</code> then comments
+     *        are skipped
+     */
+    public void setSkipComments(boolean skipComments) {
+        fSkipComments = skipComments;
+        updateTokenizers();
+    }
+
+    /**
+     * Sets names of elements which content should be skipped. The content of
+     * these elements is not tokenized: the parser only looks for their
+     * closing tags, so listeners are notified about the beginning and the
+     * end of these elements but not about their content. Nested elements
+     * with the same names are not recognized in the skipped content. Use the
+     * {@link HtmlTagDictionary#SKIPPED_CONTENT_ELEMENTS} set to skip
+     * scripts, styles, SVG images and other elements without text. Skipped
+     * elements are not changed by the {@link #reset()} method.
+     * 
+     * @param elements names of elements to skip; if it is <code>null</code>
+     *        then the content of all elements is reported
+     */
+    public void setSkippedElements(Set<String> elements) {
+        ContextSensitiveTokenizer tokenizer = getTokenizer();
+        for (String tagName : fSkippedElements) {
+            tokenizer.unregisterTokenizer(tagName);
+        }
+        Set<String> skipped = new HashSet<String>();
+        if (elements != null) {
+            for (String name : elements) {
+                skipped.add(HtmlTagTable.toTagName(name));
+            }
+        }
+        fSkippedElements = Collections.unmodifiableSet(skipped);
+        updateTokenizers();
+    }
+
+    /**
+     * Closes all opened elements and stops reading the current document:
+     * the tokenizer does not return any tokens until the end of parsing, so
+     * the rest of the stream is not read.
+     */
+    private void truncate() {
+        fTagBalancer.finish();
+        getTokenizer().push(NO_TOKENS);
+    }
+
+    /**
+     * Sets the default tokenizer and tokenizers of raw text and skipped
+     * elements corresponding to the current options of this parser.
+     */
+    private void updateTokenizers() {
+        ContextSensitiveTokenizer tokenizer = getTokenizer();
+        tokenizer.setDefaultTokenizer(newHtmlTokenizer(
+            fXmlTokenizer,
+            fSkipComments,
+            fLimits));
+        tokenizer.registerTokenizer(
+            HtmlTagDictionary.SCRIPT,
+            getTagDelimitedTextTokenizer(HtmlTagDictionary.SCRIPT));
+        tokenizer.registerTokenizer(
+            HtmlTagDictionary.STYLE,
+            getTagDelimitedTextTokenizer(HtmlTagDictionary.STYLE));
+        for (String tagName : fSkippedElements) {
+            tokenizer.registerTokenizer(
+                tagName,
+                new HtmlRawTextTokenizer(tagName));
+        }
+    }
 }
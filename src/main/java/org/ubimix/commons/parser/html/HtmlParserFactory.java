@@ -0,0 +1,156 @@
+package org.ubimix.commons.parser.html;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.ubimix.commons.parser.ICharStream;
+import org.ubimix.commons.parser.balancer.TagDescriptor;
+import org.ubimix.commons.parser.xml.IXmlListener;
+
+/**
+ * An immutable factory of {@link HtmlParser} sessions. A factory keeps the
+ * compiled tag descriptor used to balance tags and limits of parsed
+ * documents; HTML tokenizers and entity tables are shared by all parsers.
+ * Factories are thread-safe and can be shared by any number of threads.
+ * Parsers returned by the {@link #newParser()} method are not thread-safe;
+ * each thread should use its own parser instance.
+ * 
+ * @author kotelnikov
+ */
+public class HtmlParserFactory {
+
+    private static final HtmlParserFactory fInstance = new HtmlParserFactory(
+        HtmlTagDescriptorBuilder.getInstance());
+
+    /**
+     * Returns a factory using the default HTML tag descriptor.
+     * 
+     * @return a factory using the default HTML tag descriptor
+     */
+    public static HtmlParserFactory getInstance() {
+        return fInstance;
+    }
+
+    private final Set<String> fAttributeFilter;
+
+    private final HtmlParserLimits fLimits;
+
+    private final TagDescriptor fTagDescriptor;
+
+    public HtmlParserFactory(TagDescriptor tagDescriptor) {
+        this(tagDescriptor, null);
+    }
+
+    /**
+     * @param tagDescriptor the descriptor used to balance tags
+     * @param attributeFilter names of attributes reported by parsers (see
+     *        {@link HtmlParser#setAttributeFilter(Set)}); if it is
+     *        <code>null</code> then all attributes are reported
+     */
+    public HtmlParserFactory(
+        TagDescriptor tagDescriptor,
+        Set<String> attributeFilter) {
+        this(tagDescriptor, attributeFilter, null);
+    }
+
+    /**
+     * @param tagDescriptor the descriptor used to balance tags
+     * @param attributeFilter names of attributes reported by parsers (see
+     *        {@link HtmlParser#setAttributeFilter(Set)}); if it is
+     *        <code>null</code> then all attributes are reported
+     * @param limits limits of documents parsed by parsers (see
+     *        {@link HtmlParser#setLimits(HtmlParserLimits)}); if it is
+     *        <code>null</code> then documents are not limited
+     */
+    public HtmlParserFactory(
+        TagDescriptor tagDescriptor,
+        Set<String> attributeFilter,
+        HtmlParserLimits limits) {
+        fTagDescriptor = tagDescriptor;
+        fAttributeFilter = attributeFilter != null ? Collections
+            .unmodifiableSet(new HashSet<String>(attributeFilter)) : null;
+        fLimits = limits != null ? limits : HtmlParserLimits.NO_LIMITS;
+    }
+
+    /**
+     * Restores the configuration of this factory in the specified parser: the
+     * attribute filter and limits of this factory are set and all other
+     * options get their default values. Only options which differ from this
+     * configuration are set, so tokenizers of the parser are re-created only
+     * if the parser was re-configured.
+     * 
+     * @param parser the parser to configure
+     */
+    void configure(HtmlParser parser) {
+        if (parser.getAttributeFilter() != fAttributeFilter) {
+            parser.setAttributeFilter(fAttributeFilter);
+        }
+        if (parser.getLimits() != fLimits) {
+            parser.setLimits(fLimits);
+        }
+        if (parser.isMergeEntities()) {
+            parser.setMergeEntities(false);
+        }
+        if (parser.isSkipComments()) {
+            parser.setSkipComments(false);
+        }
+        if (!parser.getSkippedElements().isEmpty()) {
+            parser.setSkippedElements(null);
+        }
+    }
+
+    /**
+     * Returns names of attributes reported by parsers created by this
+     * factory or <code>null</code> if all attributes are reported.
+     * 
+     * @return names of attributes reported by parsers
+     */
+    public Set<String> getAttributeFilter() {
+        return fAttributeFilter;
+    }
+
+    /**
+     * Returns limits of documents parsed by parsers created by this factory.
+     * 
+     * @return limits of documents parsed by parsers
+     */
+    public HtmlParserLimits getLimits() {
+        return fLimits;
+    }
+
+    /**
+     * Returns the tag descriptor used by parsers created by this factory.
+     * 
+     * @return the tag descriptor used by parsers created by this factory
+     */
+    public TagDescriptor getTagDescriptor() {
+        return fTagDescriptor;
+    }
+
+    /**
+     * Creates and returns a new parser session. The returned parser is not
+     * thread-safe but it can be re-used for multiple documents in the same
+     * thread.
+     * 
+     * @return a new parser session
+     */
+    public HtmlParser newParser() {
+        HtmlParser parser = new HtmlParser(fTagDescriptor);
+        configure(parser);
+        return parser;
+    }
+
+    /**
+     * Parses the given stream using a new parser session. This method can be
+     * called from multiple threads at the same time.
+     * 
+     * @param stream the stream to parse
+     * @param listener the listener notified about parsed elements
+     */
+    public void parse(ICharStream stream, IXmlListener listener) {
+        HtmlParser parser = newParser();
+        parser.parse(stream, listener);
+    }
+
+}
@@ -0,0 +1,279 @@
+package org.ubimix.commons.parser.html;
+
+/**
+ * Immutable limits restricting the resources used by {@link HtmlParser}s to
+ * parse one document: the nesting depth of elements, the number of elements,
+ * the number of attributes of each element and the length of text runs.
+ * Limits are checked using simple counters, so they do not slow down the
+ * parsing of normal documents. Text runs and attributes are limited by
+ * tokenizers: long text runs are read in bounded chunks and attributes of
+ * opening tags are counted before attribute tokens are created, so the
+ * memory used by the parser is bounded as well. The policy of limits defines
+ * what happens when a document exceeds a limit:
+ * <ul>
+ * <li>{@link Policy#ABORT} - the parser throws a {@link HtmlLimitException}
+ * and should be reset before parsing the next document (see
+ * {@link HtmlParser#reset()}).</li>
+ * <li>{@link Policy#TRUNCATE} - the parser drops the exceeding part of the
+ * document and continues: elements deeper than the maximal depth are opened
+ * as siblings of the deepest element accepting them or dropped (with their
+ * closing tags) if there is no such an element, elements with too many
+ * attributes are reported without attributes and long text runs are cut.
+ * When the maximal number of elements is reached, all opened elements are
+ * closed and the rest of the document is not read.</li>
+ * </ul>
+ * 
+ * @author kotelnikov
+ */
+public class HtmlParserLimits {
+
+    /**
+     * Types of limits.
+     */
+    public enum Limit {
+        ATTRIBUTES, DEPTH, ELEMENTS, TEXT_LENGTH
+    }
+
+    /**
+     * Defines the behaviour of the parser when a document exceeds a limit.
+     */
+    public enum Policy {
+        ABORT, TRUNCATE
+    }
+
+    /**
+     * This value means that the number of corresponding items is not limited.
+     */
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    /**
+     * Limits used by default. Documents of any size are parsed.
+     */
+    public static final HtmlParserLimits NO_LIMITS = new HtmlParserLimits(
+        UNLIMITED,
+        UNLIMITED,
+        UNLIMITED,
+        UNLIMITED,
+        Policy.TRUNCATE);
+
+    private static void checkLimit(String name, int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("The "
+                + name
+                + " should be a positive number. Value: "
+                + value
+                + ".");
+        }
+    }
+
+    private final int fMaxAttributes;
+
+    private final int fMaxDepth;
+
+    private final int fMaxElements;
+
+    private final int fMaxTextLength;
+
+    private final Policy fPolicy;
+
+    /**
+     * @param maxDepth the maximal nesting depth of elements
+     * @param maxElements the maximal number of elements in a document
+     * @param maxAttributes the maximal number of attributes of an element
+     * @param maxTextLength the maximal length of a text run
+     * @param policy the behaviour of the parser when a limit is exceeded
+     */
+    public HtmlParserLimits(
+        int maxDepth,
+        int maxElements,
+        int maxAttributes,
+        int maxTextLength,
+        Policy policy) {
+        checkLimit("maximal depth", maxDepth);
+        checkLimit("maximal number of elements", maxElements);
+        checkLimit("maximal number of attributes", maxAttributes);
+        checkLimit("maximal text length", maxTextLength);
+        if (policy == null) {
+            throw new IllegalArgumentException("The policy is not defined.");
+        }
+        fMaxDepth = maxDepth;
+        fMaxElements = maxElements;
+        fMaxAttributes = maxAttributes;
+        fMaxTextLength = maxTextLength;
+        fPolicy = policy;
+    }
+
+    /**
+     * Returns the maximal number of attributes of an element. Attributes are
+     * counted before they are read, so in the {@link Policy#TRUNCATE} mode
+     * all attributes of an element exceeding this limit are dropped, not
+     * only the exceeding ones: the element is reported without attributes.
+     * 
+     * @return the maximal number of attributes of an element
+     */
+    public int getMaxAttributes() {
+        return fMaxAttributes;
+    }
+
+    /**
+     * Returns the maximal nesting depth of elements. The root element has the
+     * depth 1.
+     * 
+     * @return the maximal nesting depth of elements
+     */
+    public int getMaxDepth() {
+        return fMaxDepth;
+    }
+
+    /**
+     * Returns the maximal number of elements in a document, including
+     * elements opened implicitly by the parser.
+     * 
+     * @return the maximal number of elements in a document
+     */
+    public int getMaxElements() {
+        return fMaxElements;
+    }
+
+    /**
+     * Returns the maximal length of a text run reported by one
+     * notification.
+     * 
+     * @return the maximal length of a text run
+     */
+    public int getMaxTextLength() {
+        return fMaxTextLength;
+    }
+
+    /**
+     * Returns the behaviour of the parser when a limit is exceeded.
+     * 
+     * @return the behaviour of the parser when a limit is exceeded
+     */
+    public Policy getPolicy() {
+        return fPolicy;
+    }
+
+    /**
+     * Returns the value of the specified limit.
+     * 
+     * @param limit the type of the limit
+     * @return the value of the specified limit
+     */
+    public int getValue(Limit limit) {
+        switch (limit) {
+            case ATTRIBUTES:
+                return fMaxAttributes;
+            case DEPTH:
+                return fMaxDepth;
+            case ELEMENTS:
+                return fMaxElements;
+            default:
+                return fMaxTextLength;
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the parser should throw an exception when
+     * a limit is exceeded.
+     * 
+     * @return <code>true</code> if parsing is aborted when a limit is
+     *         exceeded
+     */
+    public boolean isAbort() {
+        return fPolicy == Policy.ABORT;
+    }
+
+    @Override
+    public String toString() {
+        return "HtmlParserLimits[depth="
+            + fMaxDepth
+            + ", elements="
+            + fMaxElements
+            + ", attributes="
+            + fMaxAttributes
+            + ", textLength="
+            + fMaxTextLength
+            + ", policy="
+            + fPolicy
+            + "]";
+    }
+
+    /**
+     * Returns a copy of these limits with the specified maximal number of
+     * attributes.
+     * 
+     * @param maxAttributes the maximal number of attributes of an element
+     * @return a copy of these limits with the new value
+     */
+    public HtmlParserLimits withMaxAttributes(int maxAttributes) {
+        return new HtmlParserLimits(
+            fMaxDepth,
+            fMaxElements,
+            maxAttributes,
+            fMaxTextLength,
+            fPolicy);
+    }
+
+    /**
+     * Returns a copy of these limits with the specified maximal depth.
+     * 
+     * @param maxDepth the maximal nesting depth of elements
+     * @return a copy of these limits with the new value
+     */
+    public HtmlParserLimits withMaxDepth(int maxDepth) {
+        return new HtmlParserLimits(
+            maxDepth,
+            fMaxElements,
+            fMaxAttributes,
+            fMaxTextLength,
+            fPolicy);
+    }
+
+    /**
+     * Returns a copy of these limits with the specified maximal number of
+     * elements.
+     * 
+     * @param maxElements the maximal number of elements in a document
+     * @return a copy of these limits with the new value
+     */
+    public HtmlParserLimits withMaxElements(int maxElements) {
+        return new HtmlParserLimits(
+            fMaxDepth,
+            maxElements,
+            fMaxAttributes,
+            fMaxTextLength,
+            fPolicy);
+    }
+
+    /**
+     * Returns a copy of these limits with the specified maximal text length.
+     * 
+     * @param maxTextLength the maximal length of a text run
+     * @return a copy of these limits with the new value
+     */
+    public HtmlParserLimits withMaxTextLength(int maxTextLength) {
+        return new HtmlParserLimits(
+            fMaxDepth,
+            fMaxElements,
+            fMaxAttributes,
+            maxTextLength,
+            fPolicy);
+    }
+
+    /**
+     * Returns a copy of these limits with the specified policy.
+     * 
+     * @param policy the behaviour of the parser when a limit is exceeded
+     * @return a copy of these limits with the new policy
+     */
+    public HtmlParserLimits withPolicy(Policy policy) {
+        return new HtmlParserLimits(
+            fMaxDepth,
+            fMaxElements,
+            fMaxAttributes,
+            fMaxTextLength,
+            policy);
+    }
+
+}
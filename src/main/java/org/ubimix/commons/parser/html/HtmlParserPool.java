@@ -0,0 +1,112 @@
+package org.ubimix.commons.parser.html;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.ubimix.commons.parser.ICharStream;
+import org.ubimix.commons.parser.xml.IXmlListener;
+
+/**
+ * A bounded lock-free pool of {@link HtmlParser} sessions. It allows to
+ * re-use already created parsers instead of paying the construction costs for
+ * each parsed document. This pool is thread-safe. Parsers returned by the
+ * {@link #acquire()} method belong to the caller until they are returned back
+ * using the {@link #release(HtmlParser)} method.
+ * 
+ * @author kotelnikov
+ */
+public class HtmlParserPool {
+
+    private final HtmlParserFactory fFactory;
+
+    /**
+     * Slots keeping idle parsers. Empty slots contain <code>null</code>
+     * values.
+     */
+    private final AtomicReferenceArray<HtmlParser> fParsers;
+
+    public HtmlParserPool(HtmlParserFactory factory, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException(
+                "The pool size should be a positive number. Size: "
+                    + size
+                    + ".");
+        }
+        fFactory = factory;
+        fParsers = new AtomicReferenceArray<HtmlParser>(size);
+    }
+
+    /**
+     * Returns an idle parser from this pool or creates a new one if the pool
+     * is empty.
+     * 
+     * @return a parser which can be used by the caller
+     */
+    public HtmlParser acquire() {
+        int size = fParsers.length();
+        int start = getStartSlot(size);
+        for (int i = 0; i < size; i++) {
+            int slot = (start + i) % size;
+            HtmlParser parser = fParsers.get(slot);
+            if (parser != null && fParsers.compareAndSet(slot, parser, null)) {
+                return parser;
+            }
+        }
+        return fFactory.newParser();
+    }
+
+    /**
+     * Returns the factory used to create new parsers.
+     * 
+     * @return the factory used to create new parsers
+     */
+    public HtmlParserFactory getFactory() {
+        return fFactory;
+    }
+
+    /**
+     * Returns the first slot to check. Different threads start from different
+     * slots to reduce the contention.
+     */
+    private int getStartSlot(int size) {
+        long id = Thread.currentThread().getId();
+        return (int) (id % size);
+    }
+
+    /**
+     * Parses the given stream with a pooled parser.
+     * 
+     * @param stream the stream to parse
+     * @param listener the listener notified about parsed elements
+     */
+    public void parse(ICharStream stream, IXmlListener listener) {
+        HtmlParser parser = acquire();
+        try {
+            parser.parse(stream, listener);
+        } finally {
+            release(parser);
+        }
+    }
+
+    /**
+     * Resets the specified parser and returns it back to the pool. The
+     * configuration of the factory is restored in the parser, so options
+     * changed by the caller (like limits, the attribute filter or skipped
+     * elements) are not visible to the next caller of the {@link #acquire()}
+     * method. If the pool is full the parser is dropped.
+     * 
+     * @param parser the parser to release
+     */
+    public void release(HtmlParser parser) {
+        parser.reset();
+        fFactory.configure(parser);
+        int size = fParsers.length();
+        int start = getStartSlot(size);
+        for (int i = 0; i < size; i++) {
+            int slot = (start + i) % size;
+            if (fParsers.compareAndSet(slot, null, parser)) {
+                return;
+            }
+        }
+    }
+
+}
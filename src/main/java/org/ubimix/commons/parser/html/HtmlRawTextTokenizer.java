@@ -0,0 +1,322 @@
+package org.ubimix.commons.parser.html;
+
+import org.ubimix.commons.parser.AbstractCharStream.Pointer;
+import org.ubimix.commons.parser.ICharStream;
+import org.ubimix.commons.parser.ICharStream.IMarker;
+import org.ubimix.commons.parser.ICharStream.IPointer;
+import org.ubimix.commons.parser.ITokenizer;
+import org.ubimix.commons.parser.StreamToken;
+import org.ubimix.commons.parser.html.HtmlTextTokenizer.HtmlTextToken;
+import org.ubimix.commons.parser.xml.CommentTokenizer;
+import org.ubimix.commons.parser.xml.TagToken;
+
+/**
+ * This tokenizer reads the content of raw text elements like SCRIPT or STYLE.
+ * The content is scanned in one pass up to the closing tag of the element and
+ * returned as one {@link HtmlTextToken}, including all spaces, line breaks
+ * and '&lt;' symbols. The name of the closing tag is compared
+ * case-insensitively and the tag can contain spaces before the '&gt;'
+ * symbol, so "&lt;/Script &gt;" closes a SCRIPT element. Comments are the
+ * only markup recognized in the content: they are skipped on purpose, as
+ * they were always skipped by this parser, so the scan also stops at each
+ * "&lt;!--" sequence. References are recognized only if a reference
+ * tokenizer is given in the constructor; the {@link HtmlParser} does not use
+ * it, because the content of raw text elements is never decoded by browsers
+ * and a text like "?a=1&amp;copy=2" should not be changed.
+ * <p>
+ * If the content should be skipped then the tokenizer looks only for the
+ * closing tag: the stream is advanced over the content without creating
+ * tokens, so the skipped text is never copied. Only the closing tag is
+ * returned; if the stream ends before it then an empty
+ * {@link SkippedContentToken} is returned. In this mode comments and
+ * references are not recognized and nested elements with the same name are
+ * not counted, so the content is finished by the first closing tag of the
+ * element.
+ * </p>
+ * <p>
+ * The length of text tokens can be limited, so the content of long elements
+ * is returned in several bounded chunks.
+ * </p>
+ * 
+ * @author kotelnikov
+ */
+public class HtmlRawTextTokenizer implements ITokenizer {
+
+    /**
+     * Closing tags returned by this tokenizer.
+     */
+    private static class EndTagToken extends TagToken {
+
+        public EndTagToken() {
+            init(false, true);
+        }
+
+    }
+
+    /**
+     * Tokens corresponding to the skipped content of elements. These tokens
+     * do not contain the skipped text.
+     */
+    public static class SkippedContentToken extends StreamToken {
+    }
+
+    /**
+     * Characters starting a comment.
+     */
+    private static final char[] COMMENT_START = "<!--".toCharArray();
+
+    /**
+     * Lower-case characters of the closing tag without the '&gt;' symbol
+     * ("&lt;/script").
+     */
+    private final char[] fEndTag;
+
+    /**
+     * The maximal length of text tokens.
+     */
+    private final int fMaxLength;
+
+    private final ITokenizer fReferenceTokenizer;
+
+    /**
+     * This flag defines if the content of the element should be skipped.
+     */
+    private final boolean fSkipContent;
+
+    private final String fTagName;
+
+    /**
+     * Creates a tokenizer skipping the content of the specified element.
+     * 
+     * @param tagName the lower-case name of the element
+     */
+    public HtmlRawTextTokenizer(String tagName) {
+        this(tagName, null, true, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param tagName the lower-case name of the element
+     * @param referenceTokenizer the tokenizer used to read references; if it
+     *        is <code>null</code> then references are not recognized
+     */
+    public HtmlRawTextTokenizer(String tagName, ITokenizer referenceTokenizer) {
+        this(tagName, referenceTokenizer, false, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param tagName the lower-case name of the element
+     * @param referenceTokenizer the tokenizer used to read references; if it
+     *        is <code>null</code> then references are not recognized
+     * @param maxLength the maximal length of text tokens
+     */
+    public HtmlRawTextTokenizer(
+        String tagName,
+        ITokenizer referenceTokenizer,
+        int maxLength) {
+        this(tagName, referenceTokenizer, false, maxLength);
+    }
+
+    private HtmlRawTextTokenizer(
+        String tagName,
+        ITokenizer referenceTokenizer,
+        boolean skipContent,
+        int maxLength) {
+        fTagName = tagName;
+        fMaxLength = maxLength;
+        fEndTag = ("</" + tagName).toCharArray();
+        fReferenceTokenizer = referenceTokenizer;
+        fSkipContent = skipContent;
+    }
+
+    /**
+     * Returns the name of the element read by this tokenizer.
+     * 
+     * @return the name of the element read by this tokenizer
+     */
+    public String getTagName() {
+        return fTagName;
+    }
+
+    /**
+     * Returns <code>true</code> if the content of the element is skipped.
+     * 
+     * @return <code>true</code> if the content of the element is skipped
+     */
+    public boolean isSkipContent() {
+        return fSkipContent;
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.ITokenizer#read(org.ubimix.commons.parser.ICharStream)
+     */
+    @Override
+    public StreamToken read(ICharStream stream) {
+        if (stream.isTerminated()) {
+            return null;
+        }
+        if (fSkipContent) {
+            return skipContent(stream);
+        }
+        char ch = stream.getChar();
+        StreamToken result = null;
+        if (ch == '<') {
+            result = readEndTag(stream);
+            if (result == null && isComment(stream)) {
+                result = CommentTokenizer.INSTANCE.read(stream);
+            }
+        } else if (ch == '&' && fReferenceTokenizer != null) {
+            result = fReferenceTokenizer.read(stream);
+        }
+        if (result != null) {
+            return result;
+        }
+        IMarker marker = stream.markPosition();
+        stream.incPos();
+        int len = 1;
+        while (len < fMaxLength && !stream.isTerminated()) {
+            ch = stream.getChar();
+            if (ch == '<' && (isEndTag(stream) || isComment(stream))) {
+                break;
+            }
+            if (ch == '&' && fReferenceTokenizer != null) {
+                break;
+            }
+            stream.incPos();
+            len++;
+        }
+        HtmlTextToken token = marker.getToken(new HtmlTextToken());
+        marker.close(false);
+        return token;
+    }
+
+    /**
+     * Returns <code>true</code> if the stream points to the beginning of a
+     * comment. The position of the stream is not changed.
+     * 
+     * @param stream the stream to check
+     * @return <code>true</code> if the stream points to a comment
+     */
+    private boolean isComment(ICharStream stream) {
+        IMarker marker = stream.markPosition();
+        try {
+            for (int i = 0; i < COMMENT_START.length; i++) {
+                if (stream.isTerminated()
+                    || stream.getChar() != COMMENT_START[i]) {
+                    return false;
+                }
+                stream.incPos();
+            }
+            return true;
+        } finally {
+            marker.close(true);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the stream points to the closing tag of
+     * the element. The position of the stream is not changed.
+     * 
+     * @param stream the stream to check
+     * @return <code>true</code> if the stream points to the closing tag
+     */
+    private boolean isEndTag(ICharStream stream) {
+        IMarker marker = stream.markPosition();
+        try {
+            return skipEndTagName(stream);
+        } finally {
+            marker.close(true);
+        }
+    }
+
+    /**
+     * Reads the closing tag of the element.
+     * 
+     * @param stream the stream to read
+     * @return a closing tag token or <code>null</code> if the stream does not
+     *         point to the closing tag of the element
+     */
+    private StreamToken readEndTag(ICharStream stream) {
+        IMarker marker = stream.markPosition();
+        if (!skipEndTagName(stream)) {
+            marker.close(true);
+            return null;
+        }
+        while (!stream.isTerminated()) {
+            char ch = stream.getChar();
+            stream.incPos();
+            if (ch == '>') {
+                break;
+            }
+        }
+        TagToken token = marker.getToken(new EndTagToken());
+        marker.close(false);
+        IPointer begin = token.getBegin();
+        int len = fTagName.length();
+        Pointer b = new Pointer(
+            begin.getPos() + 2,
+            begin.getColumn() + 2,
+            begin.getLine());
+        Pointer e = new Pointer(
+            b.getPos() + len,
+            b.getColumn() + len,
+            b.getLine());
+        token.setName(b, e, fTagName);
+        return token;
+    }
+
+    /**
+     * Skips the content of the element up to its closing tag. The stream is
+     * advanced character by character and no token is created for the
+     * skipped content.
+     * 
+     * @param stream the stream to read
+     * @return the closing tag of the element or an empty
+     *         {@link SkippedContentToken} if the stream is terminated before
+     *         the closing tag
+     */
+    private StreamToken skipContent(ICharStream stream) {
+        while (!stream.isTerminated()) {
+            if (stream.getChar() == '<') {
+                StreamToken token = readEndTag(stream);
+                if (token != null) {
+                    return token;
+                }
+            }
+            stream.incPos();
+        }
+        IMarker marker = stream.markPosition();
+        SkippedContentToken token = marker.getToken(new SkippedContentToken());
+        marker.close(false);
+        return token;
+    }
+
+    /**
+     * Reads the "&lt;/" symbols and the name of the element. The name should
+     * be followed by a space, '/' or '&gt;' symbol or by the end of the
+     * stream, so "&lt;/scripts&gt;" does not close a SCRIPT element.
+     * 
+     * @param stream the stream to read
+     * @return <code>true</code> if the name of the closing tag was read
+     */
+    private boolean skipEndTagName(ICharStream stream) {
+        for (int i = 0; i < fEndTag.length; i++) {
+            if (stream.isTerminated()) {
+                return false;
+            }
+            char ch = stream.getChar();
+            if (ch >= 'A' && ch <= 'Z') {
+                ch += 'a' - 'A';
+            }
+            if (ch != fEndTag[i]) {
+                return false;
+            }
+            stream.incPos();
+        }
+        if (stream.isTerminated()) {
+            return true;
+        }
+        char ch = stream.getChar();
+        return ch == '>' || ch == '/' || Character.isWhitespace(ch);
+    }
+
+}
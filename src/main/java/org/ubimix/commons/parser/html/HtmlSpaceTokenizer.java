@@ -0,0 +1,60 @@
+package org.ubimix.commons.parser.html;
+
+import org.ubimix.commons.parser.ICharStream;
+import org.ubimix.commons.parser.ICharStream.IMarker;
+import org.ubimix.commons.parser.ITokenizer;
+import org.ubimix.commons.parser.StreamToken;
+import org.ubimix.commons.parser.text.TextDict.SpacesToken;
+
+/**
+ * This tokenizer reads runs of spaces and tabulations as
+ * {@link SpacesToken}s of a limited length. It is used by parsers with
+ * limited text runs (see {@link HtmlParserLimits#getMaxTextLength()}) before
+ * the XML tokenizer, so long sequences of spaces are returned in several
+ * bounded tokens instead of one huge token. Line breaks are not recognized
+ * by this tokenizer.
+ * 
+ * @author kotelnikov
+ */
+public class HtmlSpaceTokenizer implements ITokenizer {
+
+    private static boolean isSpace(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\f' || ch == 0x0B;
+    }
+
+    /**
+     * The maximal length of returned tokens.
+     */
+    private final int fMaxLength;
+
+    /**
+     * @param maxLength the maximal length of returned tokens; it should be a
+     *        positive number
+     */
+    public HtmlSpaceTokenizer(int maxLength) {
+        fMaxLength = maxLength;
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.ITokenizer#read(org.ubimix.commons.parser.ICharStream)
+     */
+    @Override
+    public StreamToken read(ICharStream stream) {
+        if (stream.isTerminated() || !isSpace(stream.getChar())) {
+            return null;
+        }
+        IMarker marker = stream.markPosition();
+        stream.incPos();
+        int len = 1;
+        while (len < fMaxLength
+            && !stream.isTerminated()
+            && isSpace(stream.getChar())) {
+            stream.incPos();
+            len++;
+        }
+        SpacesToken token = marker.getToken(new SpacesToken());
+        marker.close(false);
+        return token;
+    }
+
+}
@@ -5,12 +5,16 @@ package org.ubimix.commons.parser.html;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
 /**
+ * Names of HTML elements and attributes and their categories. Category sets
+ * and lists are unmodifiable.
+ * 
  * @author kotelnikov
  */
 public class HtmlTagDictionary {
@@ -27,10 +31,10 @@ public class HtmlTagDictionary {
     /** Defines contact information for the author/owner of a document/article */
     public static final String ADDRESS = "address";
 
-    public static final Set<String> ALL_ATTRIBUTES = new HashSet<String>();
+    public static final Set<String> ALL_ATTRIBUTES;
 
     // The full list of all elements.
-    public static final Set<String> ALL_ELEMENTS = new HashSet<String>();
+    public static final Set<String> ALL_ELEMENTS;
 
     /** Not supported in HTML5 */
     public static final String APPLET = "applet";
@@ -107,10 +111,10 @@ public class HtmlTagDictionary {
     public static final String BIG = "big";
 
     // The full list of elements which can contain other block elements
-    public static final Set<String> BLOCK_CONTAINER_ELEMENTS = new LinkedHashSet<String>();
+    public static final Set<String> BLOCK_CONTAINER_ELEMENTS;
 
     // The full list of all block elements.
-    public static final Set<String> BLOCK_ELEMENTS = new LinkedHashSet<String>();
+    public static final Set<String> BLOCK_ELEMENTS;
 
     /** Defines a section that is quoted from another source */
     public static final String BLOCKQUOTE = "blockquote";
@@ -119,7 +123,7 @@ public class HtmlTagDictionary {
     public static final String BODY = "body";
 
     // The full list of all elements available in the body.
-    public static final Set<String> BODY_CONTENT_ELEMENTS = new HashSet<String>();
+    public static final Set<String> BODY_CONTENT_ELEMENTS;
 
     /** Defines a single line break */
     public static final String BR = "br";
@@ -189,7 +193,7 @@ public class HtmlTagDictionary {
      */
     public static final String EMBED = "embed";
 
-    public static final Set<String> EMPTY_ELEMENTS = new HashSet<String>();
+    public static final Set<String> EMPTY_ELEMENTS;
 
     /** Groups related elements in a form */
     public static final String FIELDSET = "fieldset";
@@ -239,7 +243,7 @@ public class HtmlTagDictionary {
     /** HTML5: Defines a header for a document or section */
     public static final String HEADER = "header";
 
-    public static final List<String> HEADERS = new ArrayList<String>();
+    public static final List<String> HEADERS;
 
     /**
      * New Groups heading (<h1>to
@@ -253,7 +257,7 @@ public class HtmlTagDictionary {
     /** Defines the root of an HTML document */
     public static final String HTML = "html";
 
-    public static final Set<String> HTML5_ELEMENTS = new HashSet<String>();
+    public static final Set<String> HTML5_ELEMENTS;
 
     /** Defines a part of text in an alternate voice or mood */
     public static final String I = "i";
@@ -264,9 +268,15 @@ public class HtmlTagDictionary {
     /** Defines an image */
     public static final String IMG = "img";
 
-    public static final List<String> INLINE_CONTAINERS = new ArrayList<String>();
+    /**
+     * Attributes required by most of text processing tools (see
+     * {@link #isImportantAttribute(String)}).
+     */
+    public static final Set<String> IMPORTANT_ATTRIBUTES;
+
+    public static final List<String> INLINE_CONTAINERS;
 
-    public static final List<String> INLINE_ELEMENTS = new ArrayList<String>();
+    public static final List<String> INLINE_ELEMENTS;
 
     /** Defines an input control */
     public static final String INPUT = "input";
@@ -325,7 +335,7 @@ public class HtmlTagDictionary {
     /** Not supported in HTML5 */
     public static final String NOFRAMES = "noframes";
 
-    public static final Set<String> NON_CONTENT_ELEMENTS = new HashSet<String>();
+    public static final Set<String> NON_CONTENT_ELEMENTS;
 
     /**
      * Defines an alternate content for users that do not support client-side
@@ -333,7 +343,7 @@ public class HtmlTagDictionary {
      */
     public static final String NOSCRIPT = "noscript";
 
-    public static final Set<String> NOT_SUPPORTED_IN_HTML5 = new HashSet<String>();
+    public static final Set<String> NOT_SUPPORTED_IN_HTML5;
 
     /** Defines an embedded object */
     public static final String OBJECT = "object";
@@ -394,6 +404,13 @@ public class HtmlTagDictionary {
     /** Defines a drop-down list */
     public static final String SELECT = "select";
 
+    /**
+     * Elements which content is not required by most of text processing
+     * tools; the parser can skip the content of these elements (see
+     * {@link HtmlParser#setSkippedElements(Set)}).
+     */
+    public static final Set<String> SKIPPED_CONTENT_ELEMENTS;
+
     /** Defines smaller text */
     public static final String SMALL = "small";
 
@@ -424,6 +441,9 @@ public class HtmlTagDictionary {
     /** Defines superscripted text */
     public static final String SUP = "sup";
 
+    /** Defines an embedded SVG image */
+    public static final String SVG = "svg";
+
     /** Defines a table */
     public static final String TABLE = "table";
 
@@ -433,6 +453,9 @@ public class HtmlTagDictionary {
     /** Defines a cell in a table */
     public static final String TD = "td";
 
+    /** HTML5: Defines a fragment of content which is not rendered */
+    public static final String TEMPLATE = "template";
+
     /** Defines a multiline input control (text area) */
     public static final String TEXTAREA = "textarea";
 
@@ -482,7 +505,22 @@ public class HtmlTagDictionary {
     public static final String WBR = "wbr";
 
     static {
-        ALL_ELEMENTS.addAll(Arrays.asList(
+        Set<String> allAttributes = new HashSet<String>();
+        Set<String> allElements = new HashSet<String>();
+        Set<String> blockContainerElements = new LinkedHashSet<String>();
+        Set<String> blockElements = new LinkedHashSet<String>();
+        Set<String> bodyContentElements = new HashSet<String>();
+        Set<String> emptyElements = new HashSet<String>();
+        List<String> headers = new ArrayList<String>();
+        Set<String> html5Elements = new HashSet<String>();
+        Set<String> importantAttributes = new HashSet<String>();
+        List<String> inlineContainers = new ArrayList<String>();
+        List<String> inlineElements = new ArrayList<String>();
+        Set<String> nonContentElements = new HashSet<String>();
+        Set<String> notSupportedInHtml5 = new HashSet<String>();
+        Set<String> skippedContentElements = new HashSet<String>();
+
+        allElements.addAll(Arrays.asList(
             A,
             ABBR,
             ACRONYM,
@@ -603,8 +641,8 @@ public class HtmlTagDictionary {
             VAR,
             VIDEO,
             WBR));
-        BODY_CONTENT_ELEMENTS.addAll(ALL_ELEMENTS);
-        BODY_CONTENT_ELEMENTS.removeAll(Arrays.asList(
+        bodyContentElements.addAll(allElements);
+        bodyContentElements.removeAll(Arrays.asList(
             BASE,
             BODY,
             HEAD,
@@ -613,10 +651,10 @@ public class HtmlTagDictionary {
             LINK,
             META));
 
-        HEADERS.addAll(Arrays.asList(H1, H2, H3, H4, H5, H6));
+        headers.addAll(Arrays.asList(H1, H2, H3, H4, H5, H6));
 
-        BLOCK_ELEMENTS.addAll(HEADERS);
-        BLOCK_ELEMENTS.addAll(Arrays.asList(
+        blockElements.addAll(headers);
+        blockElements.addAll(Arrays.asList(
         // New (HTML5)
             ARTICLE,
             ASIDE,
@@ -644,7 +682,7 @@ public class HtmlTagDictionary {
             UL,
             TABLE));
 
-        BLOCK_CONTAINER_ELEMENTS.addAll(Arrays.asList(FORM,
+        blockContainerElements.addAll(Arrays.asList(FORM,
         // New (HTML5)
             ARTICLE,
             FIGURE,
@@ -663,7 +701,7 @@ public class HtmlTagDictionary {
             TD,
             TH));
 
-        NON_CONTENT_ELEMENTS.addAll(Arrays.asList(
+        nonContentElements.addAll(Arrays.asList(
             BUTTON,
             FORM,
             FRAME,
@@ -675,9 +713,9 @@ public class HtmlTagDictionary {
             SCRIPT,
             STYLE,
             TEXTAREA));
-        EMPTY_ELEMENTS.addAll(Arrays.asList(HR, IMG, BR));
+        emptyElements.addAll(Arrays.asList(HR, IMG, BR));
 
-        INLINE_ELEMENTS.addAll(Arrays.asList(
+        inlineElements.addAll(Arrays.asList(
             /** General **/
             ABBR,
             ACRONYM /* deprecated */,
@@ -749,8 +787,8 @@ public class HtmlTagDictionary {
             SELECT,
             TEXTAREA));
 
-        INLINE_CONTAINERS.addAll(INLINE_ELEMENTS);
-        INLINE_CONTAINERS.removeAll(Arrays.asList(
+        inlineContainers.addAll(inlineElements);
+        inlineContainers.removeAll(Arrays.asList(
         /** Images and objects **/
         APPLET,
         // AREA,
@@ -766,12 +804,12 @@ public class HtmlTagDictionary {
             OPTGROUP,
             SELECT,
             TEXTAREA));
-        INLINE_CONTAINERS.addAll(HEADERS);
-        INLINE_CONTAINERS.addAll(Arrays.asList(P));
-        INLINE_CONTAINERS.addAll(BLOCK_CONTAINER_ELEMENTS);
-        INLINE_CONTAINERS.removeAll(NON_CONTENT_ELEMENTS);
+        inlineContainers.addAll(headers);
+        inlineContainers.addAll(Arrays.asList(P));
+        inlineContainers.addAll(blockContainerElements);
+        inlineContainers.removeAll(nonContentElements);
 
-        ALL_ATTRIBUTES.addAll(Arrays.asList(
+        allAttributes.addAll(Arrays.asList(
             ATTR_ALIGN,
             ATTR_ALT,
             ATTR_BACKGROUND,
@@ -791,8 +829,20 @@ public class HtmlTagDictionary {
             ATTR_TARGET,
             ATTR_TITLE,
             ATTR_VALIGN));
+        importantAttributes.addAll(Arrays.asList(
+            ATTR_ID,
+            ATTR_TITLE,
+            ATTR_SRC,
+            ATTR_HREF));
+        skippedContentElements.addAll(Arrays.asList(
+            NOFRAMES,
+            NOSCRIPT,
+            SCRIPT,
+            STYLE,
+            SVG,
+            TEMPLATE));
 
-        HTML5_ELEMENTS.addAll(Arrays.asList(
+        html5Elements.addAll(Arrays.asList(
             ARTICLE,
             ASIDE,
             AUDIO,
@@ -817,7 +867,7 @@ public class HtmlTagDictionary {
             VIDEO,
             WBR));
 
-        NOT_SUPPORTED_IN_HTML5.addAll(Arrays.asList(
+        notSupportedInHtml5.addAll(Arrays.asList(
             ACRONYM,
             APPLET,
             BASEFONT,
@@ -831,6 +881,26 @@ public class HtmlTagDictionary {
             STRIKE,
             TT));
 
+        // Categories can not be changed: the is*Element() methods use masks
+        // built by the HtmlTagTable class from their initial content.
+        ALL_ATTRIBUTES = Collections.unmodifiableSet(allAttributes);
+        ALL_ELEMENTS = Collections.unmodifiableSet(allElements);
+        BLOCK_CONTAINER_ELEMENTS = Collections
+            .unmodifiableSet(blockContainerElements);
+        BLOCK_ELEMENTS = Collections.unmodifiableSet(blockElements);
+        BODY_CONTENT_ELEMENTS = Collections
+            .unmodifiableSet(bodyContentElements);
+        EMPTY_ELEMENTS = Collections.unmodifiableSet(emptyElements);
+        HEADERS = Collections.unmodifiableList(headers);
+        HTML5_ELEMENTS = Collections.unmodifiableSet(html5Elements);
+        IMPORTANT_ATTRIBUTES = Collections.unmodifiableSet(importantAttributes);
+        INLINE_CONTAINERS = Collections.unmodifiableList(inlineContainers);
+        INLINE_ELEMENTS = Collections.unmodifiableList(inlineElements);
+        NON_CONTENT_ELEMENTS = Collections.unmodifiableSet(nonContentElements);
+        NOT_SUPPORTED_IN_HTML5 = Collections
+            .unmodifiableSet(notSupportedInHtml5);
+        SKIPPED_CONTENT_ELEMENTS = Collections
+            .unmodifiableSet(skippedContentElements);
     }
 
     public static int getHeaderLevel(String name) {
@@ -838,19 +908,19 @@ public class HtmlTagDictionary {
     }
 
     public static boolean isBlockContainerElement(String name) {
-        return BLOCK_CONTAINER_ELEMENTS.contains(name);
+        return HtmlTagTable.is(name, HtmlTagTable.CATEGORY_BLOCK_CONTAINER);
     }
 
     public static boolean isBlockElement(String name) {
-        return BLOCK_ELEMENTS.contains(name);
+        return HtmlTagTable.is(name, HtmlTagTable.CATEGORY_BLOCK);
     }
 
     public static boolean isBodyContent(String name) {
-        return BODY_CONTENT_ELEMENTS.contains(name);
+        return HtmlTagTable.is(name, HtmlTagTable.CATEGORY_BODY_CONTENT);
     }
 
     public static boolean isContentElement(String name) {
-        return !NON_CONTENT_ELEMENTS.contains(name);
+        return !HtmlTagTable.is(name, HtmlTagTable.CATEGORY_NON_CONTENT);
     }
 
     public static boolean isDivElement(String name) {
@@ -858,7 +928,7 @@ public class HtmlTagDictionary {
     }
 
     public static boolean isEmptyElement(String name) {
-        return EMPTY_ELEMENTS.contains(name);
+        return HtmlTagTable.is(name, HtmlTagTable.CATEGORY_EMPTY);
     }
 
     public static boolean isFieldset(String name) {
@@ -870,11 +940,7 @@ public class HtmlTagDictionary {
     }
 
     public static boolean isFormContentElement(String name) {
-        return INPUT.equals(name)
-            || SELECT.equals(name)
-            || OPTION.equals(name)
-            || BUTTON.equals(name)
-            || TEXTAREA.equals(name);
+        return HtmlTagTable.is(name, HtmlTagTable.CATEGORY_FORM_CONTENT);
     }
 
     public static boolean isFormElement(String name) {
@@ -882,12 +948,13 @@ public class HtmlTagDictionary {
     }
 
     public static boolean isHeader(String name) {
-        return HEADERS.contains(name);
+        return HtmlTagTable.is(name, HtmlTagTable.CATEGORY_HEADER);
     }
 
     public static boolean isHTML5(String name) {
-        return ALL_ELEMENTS.contains(name)
-            && !NOT_SUPPORTED_IN_HTML5.contains(name);
+        long categories = HtmlTagTable.getCategories(name);
+        return (categories & HtmlTagTable.CATEGORY_ELEMENT) != 0
+            && (categories & HtmlTagTable.CATEGORY_NOT_SUPPORTED_IN_HTML5) == 0;
     }
 
     public static boolean isHtmlAttribute(String name) {
@@ -895,7 +962,7 @@ public class HtmlTagDictionary {
     }
 
     public static boolean isHtmlElement(String name) {
-        return ALL_ELEMENTS.contains(name);
+        return HtmlTagTable.is(name, HtmlTagTable.CATEGORY_ELEMENT);
     }
 
     public static boolean isImportantAttribute(String name) {
@@ -906,7 +973,7 @@ public class HtmlTagDictionary {
     }
 
     public static boolean isInlineElement(String name) {
-        return INLINE_ELEMENTS.contains(name);
+        return HtmlTagTable.is(name, HtmlTagTable.CATEGORY_INLINE);
     }
 
     public static boolean isLineBreak(String name) {
@@ -914,19 +981,22 @@ public class HtmlTagDictionary {
     }
 
     public static boolean isList(String name) {
-        return DL.equals(name) || UL.equals(name) || OL.equals(name);
+        return HtmlTagTable.is(name, HtmlTagTable.CATEGORY_LIST);
     }
 
     public static boolean isListItem(String name) {
-        return LI.equals(name) || DT.equals(name) || DD.equals(name);
+        return HtmlTagTable.is(name, HtmlTagTable.CATEGORY_LIST_ITEM);
     }
 
     public static boolean isNewInHTML5(String name) {
-        return !HTML5_ELEMENTS.contains(name);
+        // Note: this method returns true for elements which are NOT new
+        return !HtmlTagTable.is(name, HtmlTagTable.CATEGORY_HTML5);
     }
 
     public static boolean isNotSupportedInHTML5(String name) {
-        return NOT_SUPPORTED_IN_HTML5.contains(name);
+        return HtmlTagTable.is(
+            name,
+            HtmlTagTable.CATEGORY_NOT_SUPPORTED_IN_HTML5);
     }
 
     public static boolean isParagraph(String name) {
@@ -946,7 +1016,7 @@ public class HtmlTagDictionary {
     }
 
     public static boolean isTableCellElement(String name) {
-        return TH.equals(name) || TD.equals(name);
+        return HtmlTagTable.is(name, HtmlTagTable.CATEGORY_TABLE_CELL);
     }
 
     public static boolean isTableElement(String name) {
@@ -954,11 +1024,16 @@ public class HtmlTagDictionary {
     }
 
     public static boolean isTableHeaderBodyOrRowElement(String name) {
-        return THEAD.equals(name) || TBODY.equals(name) || TR.equals(name);
+        return HtmlTagTable.is(
+            name,
+            HtmlTagTable.CATEGORY_TABLE_HEADER_BODY_OR_ROW);
     }
 
     public static boolean isTableInnerElement(String name) {
-        return isTableHeaderBodyOrRowElement(name) || isTableCellElement(name);
+        return HtmlTagTable.is(
+            name,
+            HtmlTagTable.CATEGORY_TABLE_HEADER_BODY_OR_ROW
+                | HtmlTagTable.CATEGORY_TABLE_CELL);
     }
 
     public static boolean isTableRow(String name) {
@@ -966,12 +1041,9 @@ public class HtmlTagDictionary {
     }
 
     public static boolean isTextflowContainer(String name) {
-        return isHeader(name)
-            || isParagraph(name)
-            || isTableCellElement(name)
-            || isListItem(name)
-            || BLOCKQUOTE.equals(name)
-            || PRE.equals(name);
+        return HtmlTagTable.is(
+            name,
+            HtmlTagTable.CATEGORY_TEXTFLOW_CONTAINER);
     }
 
     public static boolean isToken(String tag) {
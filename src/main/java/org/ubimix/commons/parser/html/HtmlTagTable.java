@@ -0,0 +1,364 @@
+package org.ubimix.commons.parser.html;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A table of known HTML elements. Each element has a dense integer identifier
+ * and a bit mask of categories it belongs to (block elements, headers, empty
+ * elements, ...). Names are mapped to identifiers by a perfect hash function
+ * - a seeded hash giving a distinct slot to each known name - so a lookup
+ * costs one hash computation and one comparison. Lookups by raw names are
+ * case-insensitive and they return the canonical lower-case name constants
+ * defined in the {@link HtmlTagDictionary} class without creating new
+ * strings.
+ * <p>
+ * Categories are computed from sets defined in the {@link HtmlTagDictionary}
+ * class when this class is initialized. The table is never modified after
+ * that, so it can be used by any number of threads.
+ * </p>
+ * 
+ * @author kotelnikov
+ */
+public class HtmlTagTable {
+
+    /** Elements from the {@link HtmlTagDictionary#ALL_ELEMENTS} set */
+    public static final long CATEGORY_ELEMENT = 1L << 0;
+
+    /** Elements from the {@link HtmlTagDictionary#BLOCK_ELEMENTS} set */
+    public static final long CATEGORY_BLOCK = 1L << 1;
+
+    /**
+     * Elements from the {@link HtmlTagDictionary#BLOCK_CONTAINER_ELEMENTS}
+     * set
+     */
+    public static final long CATEGORY_BLOCK_CONTAINER = 1L << 2;
+
+    /** Elements from the {@link HtmlTagDictionary#BODY_CONTENT_ELEMENTS} set */
+    public static final long CATEGORY_BODY_CONTENT = 1L << 3;
+
+    /** Elements from the {@link HtmlTagDictionary#EMPTY_ELEMENTS} set */
+    public static final long CATEGORY_EMPTY = 1L << 4;
+
+    /** Form controls: input, select, option, button and textarea */
+    public static final long CATEGORY_FORM_CONTENT = 1L << 5;
+
+    /** Elements from the {@link HtmlTagDictionary#HEADERS} list */
+    public static final long CATEGORY_HEADER = 1L << 6;
+
+    /** Elements from the {@link HtmlTagDictionary#HTML5_ELEMENTS} set */
+    public static final long CATEGORY_HTML5 = 1L << 7;
+
+    /** Elements from the {@link HtmlTagDictionary#INLINE_CONTAINERS} list */
+    public static final long CATEGORY_INLINE_CONTAINER = 1L << 8;
+
+    /** Elements from the {@link HtmlTagDictionary#INLINE_ELEMENTS} list */
+    public static final long CATEGORY_INLINE = 1L << 9;
+
+    /** Lists: dl, ul and ol */
+    public static final long CATEGORY_LIST = 1L << 10;
+
+    /** List items: li, dt and dd */
+    public static final long CATEGORY_LIST_ITEM = 1L << 11;
+
+    /** Elements from the {@link HtmlTagDictionary#NON_CONTENT_ELEMENTS} set */
+    public static final long CATEGORY_NON_CONTENT = 1L << 12;
+
+    /**
+     * Elements from the {@link HtmlTagDictionary#NOT_SUPPORTED_IN_HTML5} set
+     */
+    public static final long CATEGORY_NOT_SUPPORTED_IN_HTML5 = 1L << 13;
+
+    /** Table cells: th and td */
+    public static final long CATEGORY_TABLE_CELL = 1L << 14;
+
+    /** Table header, body and row elements: thead, tbody and tr */
+    public static final long CATEGORY_TABLE_HEADER_BODY_OR_ROW = 1L << 15;
+
+    /**
+     * Text flow containers: headers, paragraphs, table cells, list items,
+     * blockquote and pre
+     */
+    public static final long CATEGORY_TEXTFLOW_CONTAINER = 1L << 16;
+
+    /**
+     * This identifier is returned for unknown elements.
+     */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * Category masks of elements
+     */
+    private static final long[] CATEGORIES;
+
+    private static final int MASK;
+
+    /**
+     * Canonical element names; the position of a name in this array is the
+     * identifier of the element.
+     */
+    private static final String[] NAMES;
+
+    /**
+     * The seed of the hash function giving a distinct slot to each name
+     */
+    private static final int SEED;
+
+    /**
+     * Element identifiers corresponding to hash slots; empty slots contain
+     * the {@link #UNKNOWN} value.
+     */
+    private static final short[] SLOTS;
+
+    static {
+        Set<String> names = new TreeSet<String>();
+        names.addAll(HtmlTagDictionary.ALL_ELEMENTS);
+        names.addAll(HtmlTagDictionary.INLINE_ELEMENTS);
+        names.addAll(HtmlTagDictionary.BLOCK_ELEMENTS);
+        names.addAll(HtmlTagDictionary.HTML5_ELEMENTS);
+        names.addAll(HtmlTagDictionary.NOT_SUPPORTED_IN_HTML5);
+        names.add(HtmlTagDictionary.ISINDEX);
+        NAMES = names.toArray(new String[names.size()]);
+
+        // With 16 slots per name a seed without collisions is found after a
+        // few dozens of attempts.
+        int size = Integer.highestOneBit(NAMES.length * 16) * 2;
+        MASK = size - 1;
+        SLOTS = new short[size];
+        int seed = 0;
+        while (!fillSlots(seed)) {
+            seed++;
+        }
+        SEED = seed;
+
+        CATEGORIES = new long[NAMES.length];
+        setCategory(CATEGORY_ELEMENT, HtmlTagDictionary.ALL_ELEMENTS);
+        setCategory(CATEGORY_BLOCK, HtmlTagDictionary.BLOCK_ELEMENTS);
+        setCategory(
+            CATEGORY_BLOCK_CONTAINER,
+            HtmlTagDictionary.BLOCK_CONTAINER_ELEMENTS);
+        setCategory(
+            CATEGORY_BODY_CONTENT,
+            HtmlTagDictionary.BODY_CONTENT_ELEMENTS);
+        setCategory(CATEGORY_EMPTY, HtmlTagDictionary.EMPTY_ELEMENTS);
+        setCategory(CATEGORY_FORM_CONTENT, Arrays.asList(
+            HtmlTagDictionary.INPUT,
+            HtmlTagDictionary.SELECT,
+            HtmlTagDictionary.OPTION,
+            HtmlTagDictionary.BUTTON,
+            HtmlTagDictionary.TEXTAREA));
+        setCategory(CATEGORY_HEADER, HtmlTagDictionary.HEADERS);
+        setCategory(CATEGORY_HTML5, HtmlTagDictionary.HTML5_ELEMENTS);
+        setCategory(
+            CATEGORY_INLINE_CONTAINER,
+            HtmlTagDictionary.INLINE_CONTAINERS);
+        setCategory(CATEGORY_INLINE, HtmlTagDictionary.INLINE_ELEMENTS);
+        setCategory(CATEGORY_LIST, Arrays.asList(
+            HtmlTagDictionary.DL,
+            HtmlTagDictionary.UL,
+            HtmlTagDictionary.OL));
+        setCategory(CATEGORY_LIST_ITEM, Arrays.asList(
+            HtmlTagDictionary.LI,
+            HtmlTagDictionary.DT,
+            HtmlTagDictionary.DD));
+        setCategory(
+            CATEGORY_NON_CONTENT,
+            HtmlTagDictionary.NON_CONTENT_ELEMENTS);
+        setCategory(
+            CATEGORY_NOT_SUPPORTED_IN_HTML5,
+            HtmlTagDictionary.NOT_SUPPORTED_IN_HTML5);
+        setCategory(CATEGORY_TABLE_CELL, Arrays.asList(
+            HtmlTagDictionary.TH,
+            HtmlTagDictionary.TD));
+        setCategory(CATEGORY_TABLE_HEADER_BODY_OR_ROW, Arrays.asList(
+            HtmlTagDictionary.THEAD,
+            HtmlTagDictionary.TBODY,
+            HtmlTagDictionary.TR));
+        setCategory(
+            CATEGORY_TEXTFLOW_CONTAINER,
+            HtmlTagDictionary.HEADERS);
+        setCategory(CATEGORY_TEXTFLOW_CONTAINER, Arrays.asList(
+            HtmlTagDictionary.P,
+            HtmlTagDictionary.TH,
+            HtmlTagDictionary.TD,
+            HtmlTagDictionary.LI,
+            HtmlTagDictionary.DT,
+            HtmlTagDictionary.DD,
+            HtmlTagDictionary.BLOCKQUOTE,
+            HtmlTagDictionary.PRE));
+    }
+
+    /**
+     * Puts all names in hash slots using the specified seed.
+     * 
+     * @return <code>false</code> if two names have the same slot
+     */
+    private static boolean fillSlots(int seed) {
+        Arrays.fill(SLOTS, (short) UNKNOWN);
+        for (int id = 0; id < NAMES.length; id++) {
+            int slot = getHash(seed, NAMES[id]) & MASK;
+            if (SLOTS[slot] != UNKNOWN) {
+                return false;
+            }
+            SLOTS[slot] = (short) id;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the category mask of the element with the specified
+     * identifier.
+     * 
+     * @param tagId the identifier of the element
+     * @return the category mask of the element; 0 for unknown elements
+     */
+    public static long getCategories(int tagId) {
+        return tagId >= 0 ? CATEGORIES[tagId] : 0;
+    }
+
+    /**
+     * Returns the category mask of the specified element. This method is
+     * case-sensitive: only canonical (lower-case) names are recognized.
+     * 
+     * @param name the name of the element
+     * @return the category mask of the element; 0 for unknown elements
+     */
+    public static long getCategories(String name) {
+        int tagId = getTagId(name);
+        return tagId >= 0 && NAMES[tagId].equals(name)
+            ? CATEGORIES[tagId]
+            : 0;
+    }
+
+    /**
+     * Returns a case-insensitive hash code of the specified name for the
+     * given seed or -1 if the name contains non-ASCII characters.
+     */
+    private static int getHash(int seed, CharSequence name) {
+        int hash = seed ^ 0x811C9DC5;
+        for (int i = 0, len = name.length(); i < len; i++) {
+            char ch = name.charAt(i);
+            if (ch >= 0x80) {
+                return -1;
+            }
+            hash = (hash ^ toLowerCase(ch)) * 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        return hash & Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the number of known elements. All element identifiers are in
+     * the range [0..getTagCount()).
+     * 
+     * @return the number of known elements
+     */
+    public static int getTagCount() {
+        return NAMES.length;
+    }
+
+    /**
+     * Returns the identifier of the specified element or {@link #UNKNOWN} if
+     * the element is not known. This method is case-insensitive.
+     * 
+     * @param name the name of the element in any case
+     * @return the identifier of the element or {@link #UNKNOWN}
+     */
+    public static int getTagId(CharSequence name) {
+        if (name == null) {
+            return UNKNOWN;
+        }
+        int hash = getHash(SEED, name);
+        if (hash < 0) {
+            return UNKNOWN;
+        }
+        int tagId = SLOTS[hash & MASK];
+        return tagId >= 0 && matches(NAMES[tagId], name) ? tagId : UNKNOWN;
+    }
+
+    /**
+     * Returns the canonical name of the specified HTML element or
+     * <code>null</code> if the element is unknown. The returned names are
+     * constants defined in the {@link HtmlTagDictionary} class.
+     * 
+     * @param name the name of the element in any case
+     * @return the canonical name of the element or <code>null</code>
+     */
+    public static String getTagName(CharSequence name) {
+        int tagId = getTagId(name);
+        return tagId >= 0 ? NAMES[tagId] : null;
+    }
+
+    /**
+     * Returns the canonical name of the element with the specified
+     * identifier.
+     * 
+     * @param tagId the identifier of the element
+     * @return the canonical name of the element
+     */
+    public static String getTagName(int tagId) {
+        return NAMES[tagId];
+    }
+
+    /**
+     * Returns <code>true</code> if the specified element belongs to one of
+     * the given categories. This method is case-sensitive: only canonical
+     * (lower-case) names are recognized.
+     * 
+     * @param name the name of the element
+     * @param categories a mask of categories
+     * @return <code>true</code> if the element belongs to one of the given
+     *         categories
+     */
+    public static boolean is(String name, long categories) {
+        return (getCategories(name) & categories) != 0;
+    }
+
+    /**
+     * Returns <code>true</code> if the given name matches the specified
+     * lower-case string.
+     */
+    private static boolean matches(String str, CharSequence name) {
+        int len = str.length();
+        if (len != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (str.charAt(i) != toLowerCase(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void setCategory(long category, Collection<String> names) {
+        for (String name : names) {
+            CATEGORIES[getTagId(name)] |= category;
+        }
+    }
+
+    private static char toLowerCase(char ch) {
+        return ch >= 'A' && ch <= 'Z' ? (char) (ch + ('a' - 'A')) : ch;
+    }
+
+    /**
+     * Returns the canonical name of the specified element. Names of unknown
+     * elements are transformed to the lower case.
+     * 
+     * @param name the name of the element in any case
+     * @return the canonical name of the element
+     */
+    public static String toTagName(String name) {
+        String result = getTagName(name);
+        if (result == null) {
+            result = name.toLowerCase();
+        }
+        return result;
+    }
+
+    private HtmlTagTable() {
+    }
+
+}
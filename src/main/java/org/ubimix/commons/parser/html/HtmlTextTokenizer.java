@@ -0,0 +1,86 @@
+package org.ubimix.commons.parser.html;
+
+import org.ubimix.commons.parser.ICharStream;
+import org.ubimix.commons.parser.ICharStream.IMarker;
+import org.ubimix.commons.parser.ITokenizer;
+import org.ubimix.commons.parser.StreamToken;
+
+/**
+ * This tokenizer reads text runs in a single scan up to the next markup
+ * ('&lt;'), reference ('&amp;') or space character. Words, punctuation marks
+ * and other symbols of a run are returned as one token, so a text like
+ * "foo-bar.html," creates one token object instead of a token for each word
+ * and symbol. Spaces and line breaks are not recognized by this tokenizer:
+ * they are reported separately by the {@link HtmlParser} because they are
+ * balanced differently from the text. Runs longer than the maximal length
+ * given in the constructor are split into several tokens, so the memory
+ * used by one token is bounded.
+ * 
+ * @author kotelnikov
+ */
+public class HtmlTextTokenizer implements ITokenizer {
+
+    /**
+     * Tokens returned by the {@link HtmlTextTokenizer}.
+     */
+    public static class HtmlTextToken extends StreamToken {
+    }
+
+    /**
+     * The shared instance of this tokenizer. Tokenizers are stateless, so
+     * this instance can be used by any number of parsers.
+     */
+    public static final HtmlTextTokenizer INSTANCE = new HtmlTextTokenizer(
+        Integer.MAX_VALUE);
+
+    /**
+     * The maximal length of returned tokens.
+     */
+    private final int fMaxLength;
+
+    /**
+     * @param maxLength the maximal length of returned tokens; it should be a
+     *        positive number
+     */
+    public HtmlTextTokenizer(int maxLength) {
+        fMaxLength = maxLength;
+    }
+
+    /**
+     * Returns <code>true</code> if the specified character can be a part of
+     * a text run.
+     * 
+     * @param ch the character to check
+     * @return <code>true</code> if the specified character can be a part of
+     *         a text run
+     */
+    private static boolean isTextChar(char ch) {
+        if (ch < 0x80) {
+            return ch > ' ' && ch != '<' && ch != '&' && ch != 0x7F;
+        }
+        return !Character.isWhitespace(ch) && !Character.isSpaceChar(ch);
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.ITokenizer#read(org.ubimix.commons.parser.ICharStream)
+     */
+    @Override
+    public StreamToken read(ICharStream stream) {
+        if (stream.isTerminated() || !isTextChar(stream.getChar())) {
+            return null;
+        }
+        IMarker marker = stream.markPosition();
+        stream.incPos();
+        int len = 1;
+        while (len < fMaxLength
+            && !stream.isTerminated()
+            && isTextChar(stream.getChar())) {
+            stream.incPos();
+            len++;
+        }
+        HtmlTextToken token = marker.getToken(new HtmlTextToken());
+        marker.close(false);
+        return token;
+    }
+
+}
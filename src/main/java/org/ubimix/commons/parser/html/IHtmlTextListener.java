@@ -0,0 +1,28 @@
+package org.ubimix.commons.parser.html;
+
+import org.ubimix.commons.parser.xml.IXmlListener;
+
+/**
+ * Listeners of this type receive text of parsed documents as
+ * {@link CharSequence}s instead of strings. The {@link HtmlParser} calls the
+ * {@link #onCharacters(CharSequence)} method instead of the
+ * {@link IXmlListener#onText(String)} one, so the text is not copied to new
+ * strings before notifications.
+ * 
+ * @author kotelnikov
+ */
+public interface IHtmlTextListener extends IXmlListener {
+
+    /**
+     * This method is called to notify about a text run. The given sequence is
+     * a view of the internal buffer of the parser and it is valid only
+     * during this call; its content is changed after the method returns.
+     * Listeners should not keep references to this sequence; they should
+     * copy it (for example using the {@link CharSequence#toString()}
+     * method) if the text is required later.
+     * 
+     * @param text the text run
+     */
+    void onCharacters(CharSequence text);
+
+}
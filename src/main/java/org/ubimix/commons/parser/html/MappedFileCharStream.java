@@ -0,0 +1,124 @@
+package org.ubimix.commons.parser.html;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import org.ubimix.commons.parser.UnboundedCharStream;
+
+/**
+ * A character stream reading a file through memory-mapped byte buffers. Bytes
+ * are decoded on the fly (see {@link ByteCharLoader}), so the content of the
+ * file is never copied into the heap; the operating system page cache keeps
+ * the data. Files are mapped by windows of a limited size, so files of any
+ * size can be read. This stream should be closed after use.
+ * 
+ * @author kotelnikov
+ */
+public class MappedFileCharStream extends UnboundedCharStream
+    implements
+    Closeable {
+
+    /**
+     * Loads characters from the mapped file.
+     */
+    protected static class MappedCharLoader extends ByteCharLoader {
+
+        private final FileChannel fChannel;
+
+        private final FileInputStream fInput;
+
+        private final long fSize;
+
+        /**
+         * Position of the current window in the file
+         */
+        private long fWindowPos;
+
+        private final int fWindowSize;
+
+        public MappedCharLoader(File file, Charset charset, int windowSize)
+            throws IOException {
+            super(charset);
+            fInput = new FileInputStream(file);
+            fChannel = fInput.getChannel();
+            fSize = fChannel.size();
+            fWindowSize = Math.max(windowSize, MIN_WINDOW_SIZE);
+        }
+
+        /**
+         * @see java.io.Closeable#close()
+         */
+        @Override
+        public void close() throws IOException {
+            fInput.close();
+        }
+
+        /**
+         * Maps the next window of the file starting from the first byte not
+         * consumed yet.
+         * 
+         * @see org.ubimix.commons.parser.html.ByteCharLoader#loadBytes()
+         */
+        @Override
+        protected boolean loadBytes() throws IOException {
+            if (fWindowPos + fBytes.limit() >= fSize) {
+                return false;
+            }
+            long pos = fWindowPos + fBytes.position();
+            long len = Math.min(fWindowSize, fSize - pos);
+            fBytes = fChannel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            fWindowPos = pos;
+            return true;
+        }
+
+    }
+
+    /**
+     * The default size of mapped windows (64M).
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The minimal size of mapped windows. Each window should be able to
+     * contain at least one encoded character.
+     */
+    private static final int MIN_WINDOW_SIZE = 16;
+
+    private final MappedCharLoader fLoader;
+
+    public MappedFileCharStream(File file, Charset charset) throws IOException {
+        this(file, charset, DEFAULT_WINDOW_SIZE);
+    }
+
+    public MappedFileCharStream(File file, Charset charset, int windowSize)
+        throws IOException {
+        this(new MappedCharLoader(file, charset, windowSize));
+    }
+
+    protected MappedFileCharStream(MappedCharLoader loader) {
+        super(loader);
+        fLoader = loader;
+    }
+
+    /**
+     * Throws an error raised while reading the file (if any).
+     * 
+     * @throws IOException an error raised while reading the file
+     */
+    public void checkError() throws IOException {
+        fLoader.checkError();
+    }
+
+    /**
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        fLoader.close();
+    }
+
+}
@@ -0,0 +1,75 @@
+package org.ubimix.commons.parser.html;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.ubimix.commons.parser.UnboundedCharStream;
+
+/**
+ * Loads characters for an {@link UnboundedCharStream} from a {@link Reader}
+ * using a fixed-size buffer, so the memory used to read a document does not
+ * depend on its size. Errors of the underlying reader terminate the stream;
+ * they are reported by the {@link #checkError()} method.
+ * 
+ * @author kotelnikov
+ */
+public class ReaderCharLoader implements UnboundedCharStream.ICharLoader {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 8;
+
+    private final char[] fBuf;
+
+    private IOException fError;
+
+    private int fLen;
+
+    private int fPos;
+
+    private final Reader fReader;
+
+    public ReaderCharLoader(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ReaderCharLoader(Reader reader, int bufferSize) {
+        fReader = reader;
+        fBuf = new char[bufferSize];
+    }
+
+    /**
+     * Throws the error raised by the underlying reader (if any).
+     * 
+     * @throws IOException the error raised by the reader
+     */
+    public void checkError() throws IOException {
+        if (fError != null) {
+            throw fError;
+        }
+    }
+
+    /**
+     * @see org.ubimix.commons.parser.UnboundedCharStream.ICharLoader#readNext()
+     */
+    @Override
+    public int readNext() {
+        if (fPos == fLen) {
+            if (fLen < 0 || fError != null) {
+                return -1;
+            }
+            try {
+                do {
+                    fLen = fReader.read(fBuf, 0, fBuf.length);
+                } while (fLen == 0);
+            } catch (IOException e) {
+                fError = e;
+                fLen = -1;
+            }
+            fPos = 0;
+            if (fLen < 0) {
+                return -1;
+            }
+        }
+        return fBuf[fPos++];
+    }
+
+}
@@ -8,7 +8,12 @@ public class AllTests {
     public static Test suite() {
         TestSuite suite = new TestSuite(AllTests.class.getName());
         //$JUnit-BEGIN$
+        suite.addTestSuite(HtmlParserConcurrencyTest.class);
+        suite.addTestSuite(HtmlParserStreamTest.class);
         suite.addTestSuite(HtmlParserTest.class);
+        suite.addTestSuite(HtmlTagTableTest.class);
+        suite.addTestSuite(HtmlTextTokenizerTest.class);
+        suite.addTestSuite(TagBalancerTest.class);
         suite.addTestSuite(TagDescriptorTest.class);
         suite.addTestSuite(TagHierarchyTest.class);
         suite.addTestSuite(TagTypeTest.class);
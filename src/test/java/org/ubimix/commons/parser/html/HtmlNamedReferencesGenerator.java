@@ -0,0 +1,171 @@
+package org.ubimix.commons.parser.html;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Re-generates tables of the {@link HtmlNamedReferences} class from the
+ * official JSON table of named character references. Usage:
+ * 
+ * <pre>
+ * java HtmlNamedReferencesGenerator entities.json HtmlNamedReferences.java
+ * </pre>
+ * 
+ * The first argument is the <code>entities.json</code> file published by
+ * the HTML specification (http://www.whatwg.org/specs/web-apps/current-work/
+ * multipage/entities.json); the second one is the source file of the
+ * {@link HtmlNamedReferences} class. Only the packed tables and the number
+ * of references are replaced in the source file; the rest of the class is
+ * not changed.
+ * 
+ * @author kotelnikov
+ */
+public class HtmlNamedReferencesGenerator {
+
+    private static final String INDENT = "        ";
+
+    private static final int LINE_LENGTH = 80;
+
+    /**
+     * A reference in the JSON table: the name (with the leading '&amp;') and
+     * the list of code points.
+     */
+    private static final Pattern REFERENCE = Pattern
+        .compile("\"&([^\"]+)\"\\s*:\\s*\\{\\s*\"codepoints\"\\s*:\\s*\\[([^\\]]*)\\]");
+
+    /**
+     * Appends the specified character to the buffer as it should be written
+     * in a Java string literal. Line terminators can not be written as
+     * unicode escapes: these escapes are replaced before the source is
+     * parsed.
+     */
+    private static void escape(StringBuilder buf, char ch) {
+        if (ch == '"' || ch == '\\') {
+            buf.append('\\').append(ch);
+        } else if (ch == '\n') {
+            buf.append("\\n");
+        } else if (ch == '\r') {
+            buf.append("\\r");
+        } else if (ch >= 0x20 && ch < 0x7F) {
+            buf.append(ch);
+        } else {
+            buf.append(String.format("\\u%04x", (int) ch));
+        }
+    }
+
+    /**
+     * Formats the given units of a string literal as a concatenation of
+     * lines not longer than {@link #LINE_LENGTH}. Units are never split.
+     */
+    private static String format(Iterable<String> units) {
+        StringBuilder buf = new StringBuilder("\"\"");
+        StringBuilder line = new StringBuilder();
+        int max = LINE_LENGTH - INDENT.length() - "+ \"\"".length();
+        for (String unit : units) {
+            if (line.length() + unit.length() > max) {
+                buf.append("\n").append(INDENT).append("+ \"").append(line);
+                buf.append("\"");
+                line.setLength(0);
+            }
+            line.append(unit);
+        }
+        if (line.length() > 0) {
+            buf.append("\n").append(INDENT).append("+ \"").append(line);
+            buf.append("\"");
+        }
+        return buf.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: HtmlNamedReferencesGenerator "
+                + "<entities.json> <HtmlNamedReferences.java>");
+            System.exit(1);
+        }
+        File target = new File(args[1]);
+        String json = read(new File(args[0]));
+        String source = read(target);
+
+        Map<String, String> references = new TreeMap<String, String>();
+        Matcher matcher = REFERENCE.matcher(json);
+        while (matcher.find()) {
+            StringBuilder value = new StringBuilder();
+            for (String codePoint : matcher.group(2).split(",")) {
+                value.appendCodePoint(Integer.parseInt(codePoint.trim()));
+            }
+            references.put(matcher.group(1), value.toString());
+        }
+
+        List<String> names = new ArrayList<String>();
+        List<String> values = new ArrayList<String>();
+        for (Map.Entry<String, String> entry : references.entrySet()) {
+            names.add(entry.getKey() + " ");
+            String value = entry.getValue();
+            values.add(String.valueOf(value.length()));
+            for (int i = 0; i < value.length(); i++) {
+                StringBuilder buf = new StringBuilder();
+                escape(buf, value.charAt(i));
+                values.add(buf.toString());
+            }
+        }
+        source = replace(source, "PACKED_NAMES = ", format(names) + ";");
+        source = replace(source, "PACKED_VALUES = ", format(values) + ";");
+        source = replace(source, "SIZE = ", references.size() + ";");
+        write(target, source);
+        System.out.println(references.size() + " references were written.");
+    }
+
+    private static String read(File file) throws IOException {
+        InputStream input = new FileInputStream(file);
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            int pos = 0;
+            while (pos < bytes.length) {
+                int len = input.read(bytes, pos, bytes.length - pos);
+                if (len < 0) {
+                    break;
+                }
+                pos += len;
+            }
+            return new String(bytes, 0, pos, "UTF-8");
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Replaces the initializer of the field defined by the given prefix (the
+     * text up to the terminating ';' symbol).
+     */
+    private static String replace(String source, String prefix, String value) {
+        int start = source.indexOf(prefix);
+        if (start < 0) {
+            throw new IllegalArgumentException("The '"
+                + prefix
+                + "' field was not found.");
+        }
+        start += prefix.length();
+        int end = source.indexOf(";\n", start) + 1;
+        return source.substring(0, start) + value + source.substring(end);
+    }
+
+    private static void write(File file, String source) throws IOException {
+        OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(source.getBytes("UTF-8"));
+        } finally {
+            output.close();
+        }
+    }
+
+}
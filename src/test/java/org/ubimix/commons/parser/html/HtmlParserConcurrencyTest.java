@@ -0,0 +1,197 @@
+/**
+ * 
+ */
+package org.ubimix.commons.parser.html;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.parser.CharStream;
+import org.ubimix.commons.parser.xml.XmlListener;
+import org.ubimix.commons.parser.xml.utils.XmlSerializer;
+
+/**
+ * @author kotelnikov
+ */
+public class HtmlParserConcurrencyTest extends TestCase {
+
+    /**
+     * @param name
+     */
+    public HtmlParserConcurrencyTest(String name) {
+        super(name);
+    }
+
+    private String parse(HtmlParser parser, String str) {
+        XmlSerializer listener = new XmlSerializer();
+        listener.setSortAttributes(false);
+        parser.parse(new CharStream(str), listener);
+        return listener.toString();
+    }
+
+    public void testParserPool() throws Exception {
+        HtmlParserPool pool = new HtmlParserPool(
+            HtmlParserFactory.getInstance(),
+            2);
+        HtmlParser parser = pool.acquire();
+        pool.release(parser);
+        assertSame(parser, pool.acquire());
+
+        // Interrupt parsing in the middle of a document
+        try {
+            parser.parse(
+                new CharStream("<div><p>Hello<p>world"),
+                new XmlSerializer() {
+                    @Override
+                    public void onText(String str) {
+                        throw new IllegalStateException();
+                    }
+                });
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        pool.release(parser);
+
+        HtmlParser second = pool.acquire();
+        assertSame(parser, second);
+        assertEquals(
+            "<html><body><p>a</p></body></html>",
+            parse(second, "<p>a"));
+        pool.release(second);
+    }
+
+    public void testParserPoolConfiguration() throws Exception {
+        HtmlParserLimits limits = new HtmlParserLimits(
+            10,
+            100,
+            5,
+            1000,
+            HtmlParserLimits.Policy.TRUNCATE);
+        HtmlParserFactory factory = new HtmlParserFactory(
+            HtmlTagDescriptorBuilder.getInstance(),
+            HtmlTagDictionary.IMPORTANT_ATTRIBUTES,
+            limits);
+        HtmlParserPool pool = new HtmlParserPool(factory, 1);
+        HtmlParser parser = pool.acquire();
+        parser.setAttributeFilter(HtmlParser.NO_ATTRIBUTES);
+        parser.setLimits(HtmlParserLimits.NO_LIMITS);
+        parser.setMergeEntities(true);
+        parser.setSkipComments(true);
+        parser.setSkippedElements(HtmlTagDictionary.SKIPPED_CONTENT_ELEMENTS);
+        pool.release(parser);
+
+        HtmlParser second = pool.acquire();
+        assertSame(parser, second);
+        assertSame(factory.getAttributeFilter(), second.getAttributeFilter());
+        assertSame(limits, second.getLimits());
+        assertFalse(second.isMergeEntities());
+        assertFalse(second.isSkipComments());
+        assertTrue(second.getSkippedElements().isEmpty());
+        assertEquals(
+            "<html><body><p id='a'>b<script>c</script></p></body></html>",
+            parse(second, "<p id='a' style='x'>b<script>c</script>"));
+        pool.release(second);
+    }
+
+    /**
+     * Numeric references in attribute values are decoded by entity factories
+     * which register new entities for unknown references. This test checks
+     * that parsers do not share these factories.
+     */
+    public void testNumericReferencesInAttributes() throws Exception {
+        final HtmlParserFactory factory = HtmlParserFactory.getInstance();
+        final int count = 2000;
+        int threadCount = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < threadCount; i++) {
+                final int first = 0x4E00 + i * count;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        StringBuilder buf = new StringBuilder();
+                        for (int j = 0; j < count; j++) {
+                            buf.append("<span title='&#").append(first + j);
+                            buf.append(";'>x</span>");
+                        }
+                        final List<String> titles = new ArrayList<String>();
+                        HtmlParser parser = factory.newParser();
+                        parser.parse(
+                            new CharStream(buf.toString()),
+                            new XmlListener() {
+                                @Override
+                                public void beginElement(
+                                    String tagName,
+                                    Map<String, String> attributes,
+                                    Map<String, String> namespaces) {
+                                    String title = attributes.get("title");
+                                    if (title != null) {
+                                        titles.add(title);
+                                    }
+                                }
+                            });
+                        boolean result = titles.size() == count;
+                        for (int j = 0; result && j < count; j++) {
+                            String control = String.valueOf((char) (first + j));
+                            result = control.equals(titles.get(j));
+                        }
+                        return result;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testParallelParsing() throws Exception {
+        final HtmlParserFactory factory = HtmlParserFactory.getInstance();
+        final String[] documents = {
+            TestUtil.readResource(getClass(), "Wikipedia-France.html"),
+            TestUtil.readResource(getClass(), "Wikipedia-United_States.html"),
+            TestUtil.readResource(getClass(), "Wikipedia-Parsing.html") };
+        final String[] controls = new String[documents.length];
+        for (int i = 0; i < documents.length; i++) {
+            controls[i] = parse(factory.newParser(), documents[i]);
+        }
+
+        int threadCount = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < threadCount; i++) {
+                final int shift = i;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        HtmlParser parser = factory.newParser();
+                        boolean result = true;
+                        for (int j = 0; j < documents.length * 2; j++) {
+                            int idx = (shift + j) % documents.length;
+                            String test = parse(parser, documents[idx]);
+                            result &= controls[idx].equals(test);
+                        }
+                        return result;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,201 @@
+/**
+ * 
+ */
+package org.ubimix.commons.parser.html;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.parser.CharStream;
+import org.ubimix.commons.parser.UnboundedCharStream;
+import org.ubimix.commons.parser.xml.utils.XmlSerializer;
+
+/**
+ * @author kotelnikov
+ */
+public class HtmlParserStreamTest extends TestCase {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * @param name
+     */
+    public HtmlParserStreamTest(String name) {
+        super(name);
+    }
+
+    private XmlSerializer newSerializer() {
+        XmlSerializer listener = new XmlSerializer();
+        listener.setSortAttributes(false);
+        return listener;
+    }
+
+    private String parse(String str) {
+        XmlSerializer listener = newSerializer();
+        new HtmlParser().parse(new CharStream(str), listener);
+        return listener.toString();
+    }
+
+    public void testDecoding() throws Exception {
+        String str = "<p title='\u00e9t\u00e9'>A\u20ac &amp; \ud83d\ude00</p>";
+        String[] charsets = { "UTF-8", "ISO-8859-1", "US-ASCII", "UTF-16" };
+        HtmlParser parser = new HtmlParser();
+        for (String charsetName : charsets) {
+            Charset charset = Charset.forName(charsetName);
+            byte[] bytes = str.getBytes(charset);
+            XmlSerializer listener = newSerializer();
+            parser.parse(new ByteArrayInputStream(bytes), charset, listener);
+            assertEquals(parse(new String(bytes, charset)), listener.toString());
+        }
+
+        // Malformed sequences are replaced exactly as the standard decoder
+        // does
+        byte[] bytes = {
+            '<',
+            'p',
+            '>',
+            (byte) 0xC3,
+            'x',
+            (byte) 0xE2,
+            (byte) 0x82,
+            (byte) 0xED,
+            (byte) 0xA0,
+            (byte) 0x80,
+            (byte) 0xF0,
+            (byte) 0x9F,
+            (byte) 0x98,
+            (byte) 0xFF,
+            (byte) 0x80 };
+        XmlSerializer listener = newSerializer();
+        parser.parse(new ByteArrayInputStream(bytes), UTF8, listener);
+        assertEquals(parse(new String(bytes, UTF8)), listener.toString());
+    }
+
+    public void testMappedFiles() throws Exception {
+        String str = TestUtil.readResource(getClass(), "Wikipedia-France.html");
+        String control = parse(str);
+        String[] charsets = { "UTF-8", "ISO-8859-1" };
+        for (String charsetName : charsets) {
+            Charset charset = Charset.forName(charsetName);
+            // Characters not available in the charset are replaced
+            String test = new String(str.getBytes(charset), charset);
+            File file = File.createTempFile("test", ".html");
+            try {
+                FileOutputStream out = new FileOutputStream(file);
+                try {
+                    out.write(test.getBytes(charset));
+                } finally {
+                    out.close();
+                }
+                XmlSerializer listener = newSerializer();
+                new HtmlParser().parse(file, charset, listener);
+                assertEquals(parse(test), listener.toString());
+                if (test.equals(str)) {
+                    assertEquals(control, listener.toString());
+                }
+
+                // Small windows
+                listener = newSerializer();
+                MappedFileCharStream stream = new MappedFileCharStream(
+                    file,
+                    charset,
+                    1024);
+                try {
+                    new HtmlParser().parse(stream, listener);
+                } finally {
+                    stream.close();
+                }
+                assertEquals(parse(test), listener.toString());
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    public void testReaderErrors() throws Exception {
+        Reader reader = new StringReader("<p>Hello, world") {
+            private int fCount;
+
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                if (fCount++ > 0) {
+                    throw new IOException("Broken stream");
+                }
+                return super.read(cbuf, off, 4);
+            }
+        };
+        try {
+            new HtmlParser().parse(reader, newSerializer());
+            fail();
+        } catch (IOException e) {
+            assertEquals("Broken stream", e.getMessage());
+        }
+    }
+
+    public void testSmallBuffers() throws Exception {
+        String str = "<p title='\u00e9t\u00e9'>A\u20ac &amp; \ud83d\ude00</p>";
+        String[] charsets = { "UTF-8", "UTF-16", "UTF-16LE", "UTF-32" };
+        HtmlParser parser = new HtmlParser();
+        for (String charsetName : charsets) {
+            Charset charset = Charset.forName(charsetName);
+            byte[] bytes = str.getBytes(charset);
+            String control = parse(new String(bytes, charset));
+            int minSize = ChannelCharLoader.getMinBufferSize(charset);
+            for (int size = minSize; size < minSize + 4; size++) {
+                ChannelCharLoader loader = new ChannelCharLoader(
+                    Channels.newChannel(new ByteArrayInputStream(bytes)),
+                    charset,
+                    size);
+                XmlSerializer listener = newSerializer();
+                parser.parse(new UnboundedCharStream(loader), listener);
+                loader.checkError();
+                assertEquals(control, listener.toString());
+            }
+            try {
+                new ChannelCharLoader(
+                    Channels.newChannel(new ByteArrayInputStream(bytes)),
+                    charset,
+                    minSize - 1);
+                fail();
+            } catch (IllegalArgumentException e) {
+            }
+        }
+    }
+
+    public void testStreams() throws Exception {
+        String[] resources = {
+            "Wikipedia-France.html",
+            "Wikipedia-United_States.html",
+            "Wikipedia-Parsing.html" };
+        HtmlParser parser = new HtmlParser();
+        for (String resource : resources) {
+            String str = TestUtil.readResource(getClass(), resource);
+            String control = parse(str);
+            byte[] bytes = str.getBytes("UTF-8");
+
+            XmlSerializer listener = newSerializer();
+            parser.parse(new StringReader(str), listener);
+            assertEquals(control, listener.toString());
+
+            listener = newSerializer();
+            parser.parse(new ByteArrayInputStream(bytes), UTF8, listener);
+            assertEquals(control, listener.toString());
+
+            listener = newSerializer();
+            parser.parse(
+                Channels.newChannel(new ByteArrayInputStream(bytes)),
+                UTF8,
+                listener);
+            assertEquals(control, listener.toString());
+        }
+    }
+
+}
@@ -3,12 +3,18 @@
  */
 package org.ubimix.commons.parser.html;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import junit.framework.TestCase;
 
 import org.ubimix.commons.parser.CharStream;
 import org.ubimix.commons.parser.ICharStream;
+import org.ubimix.commons.parser.html.HtmlParserLimits.Limit;
+import org.ubimix.commons.parser.xml.Entity;
 import org.ubimix.commons.parser.xml.IXmlParser;
 import org.ubimix.commons.parser.xml.XmlListener;
 import org.ubimix.commons.parser.xml.utils.XmlSerializer;
@@ -54,6 +60,81 @@ public class HtmlParserTest extends TestCase {
             "<html><body><div prop='a&#x27;b'></div></body></html>");
     }
 
+    public void testAttributeFilter() {
+        String str = "<div id='a' style='color: red'>"
+            + "<a href='x.html' class='b' title='c'>link</a>"
+            + "</div>";
+        HtmlParser parser = new HtmlParser();
+        parser.setAttributeFilter(HtmlTagDictionary.IMPORTANT_ATTRIBUTES);
+        XmlSerializer listener = new XmlSerializer();
+        listener.setSortAttributes(false);
+        parser.parse(newStream(str), listener);
+        assertEquals("<html><body><div id='a'>"
+            + "<a href='x.html' title='c'>link</a>"
+            + "</div></body></html>", listener.toString());
+
+        parser.setAttributeFilter(HtmlParser.NO_ATTRIBUTES);
+        listener = new XmlSerializer();
+        parser.parse(newStream(str), listener);
+        assertEquals(
+            "<html><body><div><a>link</a></div></body></html>",
+            listener.toString());
+
+        parser.setAttributeFilter(null);
+        listener = new XmlSerializer();
+        listener.setSortAttributes(false);
+        parser.parse(newStream(str), listener);
+        assertEquals(parseAndSerialize(str), listener.toString());
+    }
+
+    public void testAttributeLimits() {
+        HtmlParser parser = new HtmlParser();
+        parser.setLimits(HtmlParserLimits.NO_LIMITS.withMaxAttributes(2));
+        // All attributes of elements exceeding the limit are dropped
+        testLimits(
+            parser,
+            "<a href='x' title='y'>a</a><a href='>' title='y' id='z'>b</a>",
+            "<html><body><a href='x' title='y'>a</a><a>b</a></body></html>");
+        testLimits(
+            parser,
+            "<p id='a' class='b' title='c'/>d",
+            "<html><body><p></p>d</body></html>");
+    }
+
+    public void testAttributeMaps() {
+        final Map<String, Map<String, String>> attributes;
+        final Map<String, Map<String, String>> namespaces;
+        attributes = new HashMap<String, Map<String, String>>();
+        namespaces = new HashMap<String, Map<String, String>>();
+        IXmlParser parser = newXmlParser();
+        parser.parse(newStream(""
+            + "<div id='a' class='b' id='c'>"
+            + "<p>"
+            + "<span xmlns='x' xmlns:y='z' title='t'>"
+            + "<i a='1' b='2' c='3' d='4' e='5' f='6' g='7' h='8' k='9'>"
+            + "</i></span></p></div>"), new XmlListener() {
+            @Override
+            public void beginElement(
+                String tagName,
+                Map<String, String> attrs,
+                Map<String, String> ns) {
+                attributes.put(tagName, new LinkedHashMap<String, String>(
+                    attrs));
+                namespaces.put(tagName, new LinkedHashMap<String, String>(
+                    ns));
+            }
+        });
+        assertEquals("{id=c, class=b}", attributes.get("div").toString());
+        assertEquals("{}", namespaces.get("div").toString());
+        assertEquals("{}", attributes.get("p").toString());
+        assertEquals("{}", namespaces.get("p").toString());
+        assertEquals("{title=t}", attributes.get("span").toString());
+        assertEquals("{=x, y=z}", namespaces.get("span").toString());
+        assertEquals(
+            "{a=1, b=2, c=3, d=4, e=5, f=6, g=7, h=8, k=9}",
+            attributes.get("i").toString());
+    }
+
     private void testAttributeWithEntities(String attr, final String control) {
         IXmlParser parser = newXmlParser();
         parser.parse(
@@ -229,6 +310,104 @@ public class HtmlParserTest extends TestCase {
             + "</html>");
     }
 
+    public void testLimits() throws IOException {
+        HtmlParser parser = new HtmlParser();
+        assertSame(HtmlParserLimits.NO_LIMITS, parser.getLimits());
+        HtmlParserLimits limits = HtmlParserLimits.NO_LIMITS
+            .withMaxDepth(4)
+            .withMaxElements(6)
+            .withMaxAttributes(1)
+            .withMaxTextLength(5);
+        parser.setLimits(limits);
+        testLimits(
+            parser,
+            "<div><div><div>a</div></div></div>",
+            "<html><body><div><div></div><div>a</div></div></body></html>");
+        testLimits(
+            parser,
+            "<p>a</p><p>b</p><p>c</p><p>d</p><p>e</p><p>f</p>",
+            "<html><body><p>a</p><p>b</p><p>c</p><p>d</p></body></html>");
+        // Implied elements are counted as well
+        testLimits(
+            parser,
+            "<p>a</p><p>b</p><p>c</p><td>d</td>",
+            "<html><body><p>a</p><p>b</p><p>c</p><table></table></body></html>");
+        testLimits(
+            parser,
+            "<a href='x'>a</a><a href='x' title='y'>b</a>",
+            "<html><body><a href='x'>a</a><a>b</a></body></html>");
+        testLimits(
+            parser,
+            "<p>abcdefgh</p>",
+            "<html><body><p>abcde</p></body></html>");
+
+        parser.setLimits(limits.withPolicy(HtmlParserLimits.Policy.ABORT));
+        testLimits(parser, "<div><div><div>a</div></div></div>", Limit.DEPTH);
+        testLimits(
+            parser,
+            "<p>a</p><p>b</p><p>c</p><p>d</p><p>e</p>",
+            Limit.ELEMENTS);
+        testLimits(
+            parser,
+            "<p>a</p><p>b</p><p>c</p><td>d</td>",
+            Limit.ELEMENTS);
+        testLimits(parser, "<a href='x' title='y'>link</a>", Limit.ATTRIBUTES);
+        testLimits(parser, "<p>abcdefgh</p>", Limit.TEXT_LENGTH);
+        testLimits(
+            parser,
+            "<div><p>abcde</p></div>",
+            "<html><body><div><p>abcde</p></div></body></html>");
+
+        // The rest of truncated documents is not read
+        parser.setLimits(limits);
+        XmlSerializer listener = new XmlSerializer();
+        parser.parse(new Reader() {
+            private final char[] fChunk = "<p>x</p>".toCharArray();
+
+            private int fPos;
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public int read(char[] buf, int off, int len) {
+                for (int i = 0; i < len; i++) {
+                    buf[off + i] = fChunk[fPos++ % fChunk.length];
+                }
+                return len;
+            }
+        }, listener);
+        assertEquals(
+            "<html><body><p>x</p><p>x</p><p>x</p><p>x</p></body></html>",
+            listener.toString());
+
+        parser.setLimits(null);
+        assertSame(HtmlParserLimits.NO_LIMITS, parser.getLimits());
+        testLimits(
+            parser,
+            "<p>abcdefgh</p>",
+            "<html><body><p>abcdefgh</p></body></html>");
+    }
+
+    private void testLimits(HtmlParser parser, String str, Limit limit) {
+        try {
+            parser.parse(newStream(str), new XmlSerializer());
+            fail();
+        } catch (HtmlLimitException e) {
+            assertEquals(limit, e.getLimit());
+            assertEquals(parser.getLimits().getValue(limit), e.getValue());
+        }
+        parser.reset();
+    }
+
+    private void testLimits(HtmlParser parser, String str, String control) {
+        XmlSerializer listener = new XmlSerializer();
+        listener.setSortAttributes(false);
+        parser.parse(newStream(str), listener);
+        assertEquals(control, listener.toString());
+    }
+
     public void testLists() {
         testParser("<ul><li>A</li><ul><li>B", ""
             + "<html><body>"
@@ -248,6 +427,81 @@ public class HtmlParserTest extends TestCase {
         assertEquals(control, test2);
     }
 
+    public void testMergeEntities() {
+        String str = "<p>caf&eacute;&lt;cr&egrave;me&gt;</p>";
+        final StringBuilder buf = new StringBuilder();
+        XmlListener listener = new XmlListener() {
+            @Override
+            public void onEntity(Entity entity) {
+                buf.append("[").append(entity.getName()).append("]");
+            }
+
+            @Override
+            public void onText(String str) {
+                buf.append("{").append(str).append("}");
+            }
+        };
+        HtmlParser parser = new HtmlParser();
+        assertFalse(parser.isMergeEntities());
+        parser.parse(newStream(str), listener);
+        assertEquals("{caf}[eacute][lt]{cr}[egrave]{me}[gt]", buf.toString());
+
+        buf.setLength(0);
+        parser.setMergeEntities(true);
+        parser.parse(newStream(str), listener);
+        assertEquals("{caf\u00e9<cr\u00e8me>}", buf.toString());
+    }
+
+    public void testNumericReferences() {
+        final StringBuilder buf = new StringBuilder();
+        IXmlParser parser = newXmlParser();
+        parser.parse(
+            newStream("<p>caf&#233;&#x2014;&#X41&#128;&#0;</p>"),
+            new XmlListener() {
+                @Override
+                public void onEntity(Entity entity) {
+                    buf.append("[").append(entity.getName()).append("]");
+                }
+
+                @Override
+                public void onText(String str) {
+                    buf.append("{").append(str).append("}");
+                }
+            });
+        assertEquals("{caf\u00e9\u2014A\u20ac\ufffd}", buf.toString());
+        testParser(
+            "<p>&#60;&#x3e;</p>",
+            "<html><body><p>&#x3c;&#x3e;</p></body></html>");
+    }
+
+    public void testRawText() {
+        testParser(
+            "a<script>if (a < b && c) {}</SCRIPT >c",
+            "<html><body>a<script>if (a &#x3c; b &#x26;&#x26; c) {}</script>c</body></html>");
+        testParser(
+            "a<script>x</scripts>y</script>b",
+            "<html><body>a<script>x&#x3c;/scripts&#x3e;y</script>b</body></html>");
+        testParser(
+            "a<script>x</script\n>b",
+            "<html><body>a<script>x</script>b</body></html>");
+        testParser(
+            "<script>u = '?a=1&copy=2&times=3' + '&lt' + '&amp;';</script>",
+            "<html><head><script>u = '?a=1&#x26;copy=2&#x26;times=3' + "
+                + "'&#x26;lt' + '&#x26;amp;';</script></head></html>");
+
+        final StringBuilder buf = new StringBuilder();
+        IXmlParser parser = newXmlParser();
+        parser.parse(
+            newStream("<script>var a = 1;\nvar b = 2;</script>"),
+            new XmlListener() {
+                @Override
+                public void onText(String str) {
+                    buf.append("{").append(str).append("}");
+                }
+            });
+        assertEquals("{var a = 1;\nvar b = 2;}", buf.toString());
+    }
+
     public void testScriptsAndStyles() {
         testParser(
             "a<script>b</script>c",
@@ -379,6 +633,80 @@ public class HtmlParserTest extends TestCase {
         testParser("a<s>b</s>c", "<html><body>a<s>b</s>c</body></html>");
     }
 
+    public void testTextListener() {
+        final StringBuilder buf = new StringBuilder();
+        class TextListener extends XmlListener implements IHtmlTextListener {
+            @Override
+            public void onCharacters(CharSequence text) {
+                buf.append("{").append(text).append("}");
+            }
+
+            @Override
+            public void onText(String str) {
+                fail("Text should be reported as character sequences");
+            }
+        }
+        IXmlParser parser = newXmlParser();
+        parser.parse(
+            newStream("<p>Hello,\n<b>wor&#x6c;d</b>!</p>"),
+            new TextListener());
+        assertEquals("{Hello,}{\n}{world}{!}", buf.toString());
+    }
+
+    public void testSkipComments() {
+        String str = "<div>a<!-- <b>x</b> -->b<!---->c"
+            + "<!--[if IE]><p>IE</p><![endif]-->d</div>";
+        HtmlParser parser = new HtmlParser();
+        assertFalse(parser.isSkipComments());
+        XmlSerializer listener = new XmlSerializer();
+        parser.parse(newStream(str), listener);
+        String control = listener.toString();
+
+        parser.setSkipComments(true);
+        assertTrue(parser.isSkipComments());
+        listener = new XmlSerializer();
+        parser.parse(newStream(str), listener);
+        assertEquals(control, listener.toString());
+        assertEquals(
+            "<html><body><div>abcd</div></body></html>",
+            listener.toString());
+
+        // Empty and not terminated comments
+        listener = new XmlSerializer();
+        parser.parse(newStream("<p>a<!-->b<!--->c<!-- d</p>"), listener);
+        assertEquals("<html><body><p>abc</p></body></html>", listener
+            .toString());
+
+        // Comments finished by "--!>"
+        listener = new XmlSerializer();
+        parser.parse(
+            newStream("<p>a<!-- x --!>b<!----!>c<!--!> y -->d</p>"),
+            listener);
+        assertEquals("<html><body><p>abcd</p></body></html>", listener
+            .toString());
+    }
+
+    public void testSkippedElements() {
+        String str = "a<script>if (a < b) { x = '<p>'; }</script>"
+            + "b<svg><g><text>x</text></g></SVG>c";
+        HtmlParser parser = new HtmlParser();
+        parser.setSkippedElements(HtmlTagDictionary.SKIPPED_CONTENT_ELEMENTS);
+        XmlSerializer listener = new XmlSerializer();
+        parser.parse(newStream(str), listener);
+        assertEquals(
+            "<html><body>a<script></script>b<svg></svg>c</body></html>",
+            listener.toString());
+
+        parser.setSkippedElements(null);
+        assertTrue(parser.getSkippedElements().isEmpty());
+        listener = new XmlSerializer();
+        parser.parse(newStream(str), listener);
+        assertEquals("<html><body>a<script>if (a &#x3c; b) "
+            + "{ x = '&#x3c;p&#x3e;'; }</script>"
+            + "b<svg><g><text>x</text></g></svg>c</body></html>", listener
+            .toString());
+    }
+
     public void testTables() {
         testParser("<table> <unknowntag> <td> Text ", "<html><body>"
             + "<table> <unknowntag> "
@@ -0,0 +1,65 @@
+/**
+ * 
+ */
+package org.ubimix.commons.parser.html;
+
+import junit.framework.TestCase;
+
+/**
+ * @author kotelnikov
+ */
+public class HtmlTagTableTest extends TestCase {
+
+    /**
+     * @param name
+     */
+    public HtmlTagTableTest(String name) {
+        super(name);
+    }
+
+    public void testCategories() {
+        assertTrue(HtmlTagDictionary.isBlockElement(HtmlTagDictionary.DIV));
+        assertFalse(HtmlTagDictionary.isBlockElement("DIV"));
+        assertFalse(HtmlTagDictionary.isBlockElement(null));
+        assertTrue(HtmlTagDictionary.isTextflowContainer(HtmlTagDictionary.H3));
+        assertTrue(HtmlTagDictionary.isTableInnerElement(HtmlTagDictionary.TD));
+        assertTrue(HtmlTagDictionary.isHTML5(HtmlTagDictionary.DIV));
+        assertFalse(HtmlTagDictionary.isHTML5(HtmlTagDictionary.FONT));
+        assertFalse(HtmlTagDictionary.isHTML5("foo"));
+        assertTrue(HtmlTagDictionary.isContentElement("foo"));
+        assertFalse(HtmlTagDictionary
+            .isContentElement(HtmlTagDictionary.SCRIPT));
+        for (int id = 0; id < HtmlTagTable.getTagCount(); id++) {
+            String name = HtmlTagTable.getTagName(id);
+            assertEquals(id, HtmlTagTable.getTagId(name));
+            assertEquals(
+                HtmlTagDictionary.INLINE_ELEMENTS.contains(name),
+                HtmlTagTable.is(name, HtmlTagTable.CATEGORY_INLINE));
+            assertEquals(
+                HtmlTagDictionary.EMPTY_ELEMENTS.contains(name),
+                HtmlTagDictionary.isEmptyElement(name));
+        }
+        assertEquals(HtmlTagTable.UNKNOWN, HtmlTagTable.getTagId("foo"));
+        assertEquals(0, HtmlTagTable.getCategories(HtmlTagTable.UNKNOWN));
+    }
+
+    public void testTagNames() {
+        for (String name : HtmlTagDictionary.ALL_ELEMENTS) {
+            assertSame(name, HtmlTagTable.getTagName(name));
+            assertSame(name, HtmlTagTable.getTagName(name.toUpperCase()));
+            assertSame(name, HtmlTagTable.getTagName(new StringBuilder(name)));
+            assertSame(name, HtmlTagTable.toTagName(name.toUpperCase()));
+        }
+        assertSame(
+            HtmlTagDictionary.ISINDEX,
+            HtmlTagTable.getTagName("IsIndex"));
+        assertSame(HtmlTagDictionary.H1, HtmlTagTable.getTagName("H1"));
+        assertNull(HtmlTagTable.getTagName("foo"));
+        assertNull(HtmlTagTable.getTagName(""));
+        assertNull(HtmlTagTable.getTagName("d\u00edv"));
+        assertNull(HtmlTagTable.getTagName("d"));
+        assertNull(HtmlTagTable.getTagName("divs"));
+        assertEquals("foo:bar", HtmlTagTable.toTagName("Foo:Bar"));
+    }
+
+}
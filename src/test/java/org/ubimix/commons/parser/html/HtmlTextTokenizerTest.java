@@ -0,0 +1,65 @@
+/**
+ * 
+ */
+package org.ubimix.commons.parser.html;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.parser.CharStream;
+import org.ubimix.commons.parser.ICharStream;
+import org.ubimix.commons.parser.StreamToken;
+import org.ubimix.commons.parser.html.HtmlTextTokenizer.HtmlTextToken;
+
+/**
+ * @author kotelnikov
+ */
+public class HtmlTextTokenizerTest extends TestCase {
+
+    /**
+     * @param name
+     */
+    public HtmlTextTokenizerTest(String name) {
+        super(name);
+    }
+
+    private void testText(String str, String control) {
+        ICharStream stream = new CharStream(str);
+        StreamToken token = HtmlTextTokenizer.INSTANCE.read(stream);
+        if (control != null) {
+            assertTrue(token instanceof HtmlTextToken);
+            assertEquals(control, token.getText());
+        } else {
+            assertNull(token);
+        }
+    }
+
+    public void testMaxLength() {
+        HtmlTextTokenizer tokenizer = new HtmlTextTokenizer(3);
+        ICharStream stream = new CharStream("abcdefgh ");
+        assertEquals("abc", tokenizer.read(stream).getText());
+        assertEquals("def", tokenizer.read(stream).getText());
+        assertEquals("gh", tokenizer.read(stream).getText());
+        assertNull(tokenizer.read(stream));
+
+        HtmlSpaceTokenizer spaces = new HtmlSpaceTokenizer(3);
+        stream = new CharStream(" \t   \na");
+        assertEquals(" \t ", spaces.read(stream).getText());
+        assertEquals("  ", spaces.read(stream).getText());
+        assertNull(spaces.read(stream));
+    }
+
+    public void testTextRuns() {
+        testText("Hello, world!", "Hello,");
+        testText("foo-bar.html?a=b;c<br>", "foo-bar.html?a=b;c");
+        testText("café&eacute;", "café");
+        testText("a\tb", "a");
+        testText("a\nb", "a");
+        testText("a b", "a");
+        testText("абв", "абв");
+        testText(" a", null);
+        testText("<a>", null);
+        testText("&amp;", null);
+        testText("", null);
+    }
+
+}
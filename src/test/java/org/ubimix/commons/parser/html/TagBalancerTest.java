@@ -0,0 +1,191 @@
+/**
+ * 
+ */
+package org.ubimix.commons.parser.html;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.parser.balancer.ITagDescriptor;
+import org.ubimix.commons.parser.balancer.TagBalancer;
+import org.ubimix.commons.parser.balancer.TagBalancer.IListener;
+import org.ubimix.commons.parser.balancer.TagDescriptor;
+
+/**
+ * @author kotelnikov
+ */
+public class TagBalancerTest extends TestCase {
+
+    private static class Listener implements IListener {
+
+        private final StringBuilder fBuf = new StringBuilder();
+
+        @Override
+        public void begin(String tag) {
+            fBuf.append("<").append(tag).append(">");
+        }
+
+        @Override
+        public void end(String tag) {
+            fBuf.append("</").append(tag).append(">");
+        }
+
+        @Override
+        public String toString() {
+            return fBuf.toString();
+        }
+    }
+
+    private Listener fListener;
+
+    private TagBalancer fBalancer;
+
+    /**
+     * @param name
+     */
+    public TagBalancerTest(String name) {
+        super(name);
+    }
+
+    private void begin(String... tags) {
+        for (String tag : tags) {
+            fBalancer.begin(tag);
+        }
+    }
+
+    private void end(String... tags) {
+        for (String tag : tags) {
+            fBalancer.end(tag);
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        HtmlTagDescriptorBuilder builder = new HtmlTagDescriptorBuilder();
+        TagDescriptor descriptor = builder.build();
+        fListener = new Listener();
+        fBalancer = new TagBalancer(descriptor, fListener);
+    }
+
+    public void testDeepStrayEndTags() {
+        int count = 20000;
+        begin("html", "body");
+        for (int i = 0; i < count; i++) {
+            begin("div");
+        }
+        for (int i = 0; i < count; i++) {
+            end("span");
+        }
+        assertEquals(count + 2, fBalancer.getDepth());
+        for (int i = 0; i < count; i++) {
+            begin("td");
+            end("table");
+        }
+        assertEquals(count + 2, fBalancer.getDepth());
+        end("body");
+        assertEquals(1, fBalancer.getDepth());
+        fBalancer.finish();
+        assertEquals(0, fBalancer.getDepth());
+    }
+
+    public void testMaxDepth() {
+        fBalancer.setMaxDepth(4);
+        begin("html", "body", "div", "div", "div", "span");
+        assertEquals(4, fBalancer.getDepth());
+        end("div");
+        assertEquals(2, fBalancer.getDepth());
+        // Implicit parents are limited as well; cells which do not fit in
+        // their rows are dropped
+        begin("td");
+        assertEquals(4, fBalancer.getDepth());
+        end("td");
+        begin("td");
+        assertEquals(4, fBalancer.getDepth());
+        fBalancer.finish();
+        assertEquals(""
+            + "<html><body>"
+            + "<div><div></div><div></div><span></span></div>"
+            + "<table><tr></tr></table>"
+            + "</body></html>", fListener.toString());
+    }
+
+    public void testNotIndexedDescriptor() {
+        final TagDescriptor descriptor = new HtmlTagDescriptorBuilder().build();
+        ITagDescriptor plain = new ITagDescriptor() {
+            @Override
+            public boolean accepts(String parent, String tag) {
+                return descriptor.accepts(parent, tag);
+            }
+
+            @Override
+            public String getParentTag(String tag) {
+                return descriptor.getParentTag(tag);
+            }
+
+            @Override
+            public boolean isDeclared(String tag) {
+                return descriptor.isDeclared(tag);
+            }
+        };
+        Listener listener = new Listener();
+        TagBalancer balancer = new TagBalancer(plain, listener);
+        String[] tags = { "td", "xxx", "p", "b", "div", "li", "td", "html" };
+        for (String tag : tags) {
+            fBalancer.begin(tag);
+            balancer.begin(tag);
+            fBalancer.end("p");
+            balancer.end("p");
+        }
+        fBalancer.finish();
+        balancer.finish();
+        assertEquals(fListener.toString(), listener.toString());
+    }
+
+    public void testReset() {
+        begin("html", "body", "div", "xxx");
+        fBalancer.reset();
+        assertEquals(0, fBalancer.getDepth());
+        // Tags forgotten by the reset method can not be closed
+        begin("html", "body", "p");
+        end("div", "xxx");
+        assertEquals(3, fBalancer.getDepth());
+        fBalancer.finish();
+        assertEquals(""
+            + "<html><body><div><xxx>"
+            + "<html><body><p></p></body></html>", fListener.toString());
+    }
+
+    public void testRootTag() {
+        begin("html", "body");
+        end("html");
+        assertEquals(2, fBalancer.getDepth());
+        fBalancer.finish();
+        begin("xxx", "div", "xxx");
+        end("xxx");
+        assertEquals(2, fBalancer.getDepth());
+        end("xxx");
+        assertEquals(2, fBalancer.getDepth());
+        fBalancer.finish();
+        assertEquals(""
+            + "<html><body></body></html>"
+            + "<xxx><div><xxx></xxx></div></xxx>", fListener.toString());
+    }
+
+    public void testUnknownTags() {
+        begin("html", "body", "xxx", "span", "yyy", "xxx", "a");
+        end("zzz", "span");
+        assertEquals(3, fBalancer.getDepth());
+        end("yyy");
+        assertEquals(3, fBalancer.getDepth());
+        end("xxx");
+        assertEquals(2, fBalancer.getDepth());
+        end("xxx");
+        assertEquals(2, fBalancer.getDepth());
+        fBalancer.finish();
+        assertEquals(""
+            + "<html><body>"
+            + "<xxx><span><yyy><xxx><a></a></xxx></yyy></span></xxx>"
+            + "</body></html>", fListener.toString());
+    }
+
+}
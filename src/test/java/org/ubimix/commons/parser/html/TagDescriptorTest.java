@@ -5,6 +5,8 @@ package org.ubimix.commons.parser.html;
 
 import junit.framework.TestCase;
 
+import org.ubimix.commons.parser.balancer.IIndexedTagDescriptor;
+import org.ubimix.commons.parser.balancer.TagDescriptor;
 import org.ubimix.commons.parser.balancer.TagDescriptorBuilder;
 import org.ubimix.commons.parser.balancer.TagType;
 
@@ -75,4 +77,54 @@ public class TagDescriptorTest extends TestCase {
 
     }
 
+    public void testCompiledDescriptor() throws Exception {
+        TagType block = new TagType("block");
+        TagType blockContainer = new TagType("blockContainer")
+            .setContainedTypes(block);
+        TagType inline = new TagType("inline");
+        TagType inlineContainer = new TagType("inlineContainer")
+            .setContainedTypes(inline);
+
+        TagDescriptorBuilder builder = new TagDescriptorBuilder();
+        builder.setType(block, "p", "div");
+        builder.setType(blockContainer, "div");
+        builder.setType(inline, "a", "span", "img");
+        builder.setType(inlineContainer, "p", "div", "a", "span");
+        builder.setParentTag("div", "p");
+        TagDescriptor descriptor = builder.build();
+
+        String[] tags = { "a", "div", "img", "p", "span" };
+        assertEquals(tags.length, descriptor.getTagCount());
+        for (int i = 0; i < tags.length; i++) {
+            int id = descriptor.getTagId(tags[i]);
+            assertEquals(i, id);
+            assertEquals(tags[i], descriptor.getTagName(id));
+            assertTrue(descriptor.isDeclared(tags[i]));
+        }
+        for (String parent : tags) {
+            for (String tag : tags) {
+                boolean control = builder.accepts(parent, tag);
+                assertEquals(control, descriptor.accepts(parent, tag));
+                assertEquals(control, descriptor.accepts(
+                    descriptor.getTagId(parent),
+                    descriptor.getTagId(tag)));
+            }
+        }
+
+        assertEquals("div", descriptor.getParentTag("p"));
+        assertEquals(
+            descriptor.getTagId("div"),
+            descriptor.getParentTagId(descriptor.getTagId("p")));
+        assertNull(descriptor.getParentTag("span"));
+
+        // Non-declared tags
+        assertFalse(descriptor.isDeclared("xxx"));
+        assertEquals(
+            IIndexedTagDescriptor.UNDECLARED,
+            descriptor.getTagId("xxx"));
+        assertFalse(descriptor.accepts("div", "xxx"));
+        assertFalse(descriptor.accepts("xxx", "div"));
+        assertNull(descriptor.getParentTag("xxx"));
+    }
+
 }
@@ -8,6 +8,7 @@ import junit.framework.TestCase;
 import org.ubimix.commons.parser.CharStream;
 import org.ubimix.commons.parser.ICharStream;
 import org.ubimix.commons.parser.StreamToken;
+import org.ubimix.commons.parser.html.HtmlEntityTokenizer.HtmlEntityToken;
 import org.ubimix.commons.parser.xml.Entity;
 import org.ubimix.commons.parser.xml.EntityFactory;
 import org.ubimix.commons.parser.xml.EntityToken;
@@ -39,6 +40,131 @@ public class XHTMLEntityTokenizerTest extends TestCase {
         }
     }
 
+    private void testHtmlEntityTokenizer(
+        HtmlEntityTokenizer tokenizer,
+        String str,
+        Entity control,
+        String controlText) {
+        ICharStream stream = new CharStream(str);
+        StreamToken token = tokenizer.read(stream);
+        if (control != null) {
+            assertNotNull(token);
+            assertTrue(token instanceof HtmlEntityToken);
+            HtmlEntityToken t = (HtmlEntityToken) token;
+            assertSame(control, t.getEntity());
+            assertEquals(controlText, t.getText());
+            assertEquals(
+                new String(Character.toChars(control.getCode())),
+                t.getValue());
+        } else {
+            assertNull(token);
+        }
+    }
+
+    public void testHtmlEntityTokenizer() {
+        XHTMLEntities e = HtmlParser.XHTML_ENTITIES;
+        HtmlEntityTokenizer tokenizer = new HtmlEntityTokenizer(
+            HtmlEntityTokenizer.getEntities(
+                e.XML,
+                e.CHARS,
+                e.SYMBOLS,
+                e.SPECIALS));
+        testHtmlEntityTokenizer(tokenizer, "&lt;", e.XML.S_LT, "&lt;");
+        testHtmlEntityTokenizer(
+            tokenizer,
+            "&agrave; ",
+            e.CHARS.S_agrave,
+            "&agrave;");
+        testHtmlEntityTokenizer(tokenizer, "&not;in", e.CHARS.S_not, "&not;");
+        testHtmlEntityTokenizer(
+            tokenizer,
+            "&notin;",
+            e.SYMBOLS.S_notin,
+            "&notin;");
+        testHtmlEntityTokenizer(
+            tokenizer,
+            "&Dagger;&dagger;",
+            e.SPECIALS.S_Dagger,
+            "&Dagger;");
+        testHtmlEntityTokenizer(tokenizer, "&euro ", null, null);
+        testHtmlEntityTokenizer(tokenizer, "&xxx; ", null, null);
+        testHtmlEntityTokenizer(tokenizer, "&#60;", null, null);
+        testHtmlEntityTokenizer(tokenizer, "&", null, null);
+        testHtmlEntityTokenizer(tokenizer, "lt;", null, null);
+    }
+
+    public void testHtml5EntityTokenizer() {
+        XHTMLEntities e = HtmlParser.XHTML_ENTITIES;
+        HtmlEntityTokenizer tokenizer = HtmlEntityTokenizer
+            .newHtml5Tokenizer(HtmlEntityTokenizer.getEntities(
+                e.XML,
+                e.CHARS,
+                e.SYMBOLS,
+                e.SPECIALS));
+        testHtmlEntityTokenizer(tokenizer, "&amp;", e.SPECIALS.S_amp, "&amp;");
+        testHtmlEntityTokenizer(
+            tokenizer,
+            "&notin;",
+            e.SYMBOLS.S_notin,
+            "&notin;");
+        // Legacy references without the terminating symbol
+        testHtmlEntityTokenizer(tokenizer, "&amp x", e.SPECIALS.S_amp, "&amp");
+        testHtmlEntityTokenizer(tokenizer, "&notin", e.CHARS.S_not, "&not");
+        testHtmlEntityTokenizer(tokenizer, "&notit;", e.CHARS.S_not, "&not");
+        testHtmlEntityTokenizer(tokenizer, "&euro ", null, null);
+
+        // References without registered entities
+        testHtml5Reference(tokenizer, "&NotEqualTilde;", "\u2242\u0338");
+        testHtml5Reference(tokenizer, "&Afr;", "\ud835\udd04");
+        testHtml5Reference(tokenizer, "&AMP", "&");
+        testHtml5Reference(tokenizer, "&frac12x", "\u00bd");
+    }
+
+    public void testNumericReferences() {
+        HtmlEntityTokenizer tokenizer = HtmlEntityTokenizer
+            .newHtml5Tokenizer(HtmlEntityTokenizer
+                .getEntities(HtmlParser.XHTML_ENTITIES.XML));
+        testNumericReference(tokenizer, "&#60;", '<', "&#60;");
+        testNumericReference(tokenizer, "&#x3c;", '<', "&#x3c;");
+        testNumericReference(tokenizer, "&#X3C;", '<', "&#X3C;");
+        testNumericReference(tokenizer, "&#224 ", 0xE0, "&#224");
+        testNumericReference(tokenizer, "&#x1F600;", 0x1F600, "&#x1F600;");
+        // Invalid references
+        testNumericReference(tokenizer, "&#0;", 0xFFFD, "&#0;");
+        testNumericReference(tokenizer, "&#xD800;", 0xFFFD, "&#xD800;");
+        testNumericReference(tokenizer, "&#x110000;", 0xFFFD, "&#x110000;");
+        testNumericReference(tokenizer, "&#128;", 0x20AC, "&#128;");
+        testNumericReference(tokenizer, "&#129;", 0x81, "&#129;");
+        assertNull(tokenizer.read(new CharStream("&#;")));
+        assertNull(tokenizer.read(new CharStream("&#x;")));
+        assertNull(tokenizer.read(new CharStream("&#a;")));
+    }
+
+    private void testNumericReference(
+        HtmlEntityTokenizer tokenizer,
+        String str,
+        int control,
+        String controlText) {
+        StreamToken token = tokenizer.read(new CharStream(str));
+        assertTrue(token instanceof HtmlEntityToken);
+        HtmlEntityToken t = (HtmlEntityToken) token;
+        assertNull(t.getEntity());
+        assertEquals(control, t.getCodePoint());
+        assertEquals(new String(Character.toChars(control)), t.getValue());
+        assertEquals(controlText, t.getText());
+    }
+
+    private void testHtml5Reference(
+        HtmlEntityTokenizer tokenizer,
+        String str,
+        String control) {
+        StreamToken token = tokenizer.read(new CharStream(str));
+        assertTrue(token instanceof HtmlEntityToken);
+        HtmlEntityToken t = (HtmlEntityToken) token;
+        assertNull(t.getEntity());
+        assertEquals(control, t.getValue());
+    }
+
     public void testXHTMLEntityTokenizer() {
         EntityFactory entityFactory = new EntityFactory();
         XHTMLEntities e = new XHTMLEntities(entityFactory);